@@ -0,0 +1,17 @@
+package com.modulith.ecommerce;
+
+import com.modulith.ecommerce.common.CheckoutMode;
+import com.modulith.ecommerce.common.ConditionalOnCheckoutMode;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * Runs @ApplicationModuleListener methods on the application task executor when checkout is asynchronous.
+ * The executor is bounded through spring.task.execution.pool.*; a rejected event stays incomplete
+ * in the event_publication table and is delivered again later.
+ */
+@Configuration
+@EnableAsync
+@ConditionalOnCheckoutMode(CheckoutMode.ASYNC)
+public class AsyncEventsConfig {
+}
@@ -32,7 +32,7 @@ public class AuthService {
             throw new InvalidCredentialsException("Invalid email or password");
         }
 
-        String token = jwtService.generateToken(user.email(), user.role().name());
+        String token = jwtService.generateToken(user.id(), user.email(), user.role().name());
 
         return new LoginResponse(token, user.email(), user.role().name());
     }
@@ -1,21 +1,64 @@
 package com.modulith.ecommerce.auth;
 
+import com.modulith.ecommerce.event.UserDeletedEvent;
 import com.modulith.ecommerce.exception.ResourceNotFoundException;
 import com.modulith.ecommerce.user.UserModuleAPI;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.time.Duration;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+/**
+ * Resolves the authenticated user. The caches below are per instance: a deleted user is evicted
+ * on the instance that deleted it, the others rely on the TTL of the email lookup and on the
+ * expiration of the tokens.
+ */
 @Service
-@RequiredArgsConstructor
 public class CurrentUserService implements AuthModuleAPI {
 
+    private static final int MAX_CACHED_USER_IDS = 10_000;
+
     private final UserModuleAPI userModuleAPI;
 
+    private final long userIdTtlMillis;
+
+    // a token is never older than its expiration, so a deleted id is remembered that long
+    private final long deletedUserTtlMillis;
+
+    // ids of users authenticated with tokens that predate the user id claim
+    private final Map<String, CachedUserId> userIdsByEmail = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedUserId> eldest) {
+            return size() > MAX_CACHED_USER_IDS;
+        }
+    };
+
+    // ids of deleted users whose tokens, carrying the id claim, may still be valid
+    private final Map<Long, Long> deletedUserIds = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > MAX_CACHED_USER_IDS || eldest.getValue() <= System.currentTimeMillis();
+        }
+    };
+
+    public CurrentUserService(
+            UserModuleAPI userModuleAPI,
+            @Value("${jwt.user-id-cache.ttl:PT5M}") Duration userIdTtl,
+            @Value("${jwt.expiration}") long expiration) {
+        this.userModuleAPI = userModuleAPI;
+        this.userIdTtlMillis = userIdTtl.toMillis();
+        this.deletedUserTtlMillis = expiration;
+    }
+
+    private record CachedUserId(Long userId, long expiresAt) {}
+
     /**
      * Gets the email of the currently authenticated user from SecurityContext
      * @return User email
@@ -29,6 +72,9 @@ public class CurrentUserService implements AuthModuleAPI {
         }
         
         Object principal = authentication.getPrincipal();
+        if (principal instanceof JwtPrincipal jwtPrincipal) {
+            return jwtPrincipal.email();
+        }
         if (principal instanceof String) {
             return (String) principal;
         }
@@ -37,14 +83,50 @@ public class CurrentUserService implements AuthModuleAPI {
     }
 
     /**
-     * Gets the ID of the currently authenticated user
+     * Gets the ID of the currently authenticated user, from the token claims when present.
+     * Tokens issued without the user id claim fall back to an email lookup cached for a limited time.
      * @return User ID
-     * @throws ResourceNotFoundException if user is not authenticated or not found
+     * @throws ResourceNotFoundException if user is not authenticated, not found or deleted
      */
     public Long getCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof JwtPrincipal principal
+                && principal.userId() != null) {
+            synchronized (deletedUserIds) {
+                Long deletedUntil = deletedUserIds.get(principal.userId());
+                if (deletedUntil != null && deletedUntil > System.currentTimeMillis()) {
+                    throw new ResourceNotFoundException("User", principal.userId());
+                }
+            }
+            return principal.userId();
+        }
+
         String email = getCurrentUserEmail();
-        return userModuleAPI.findUserIdByEmail(email)
+        long now = System.currentTimeMillis();
+        synchronized (userIdsByEmail) {
+            CachedUserId cached = userIdsByEmail.get(email);
+            if (cached != null && cached.expiresAt() > now) {
+                return cached.userId();
+            }
+        }
+
+        Long userId = userModuleAPI.findUserIdByEmail(email)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "email", email));
+        synchronized (userIdsByEmail) {
+            userIdsByEmail.put(email, new CachedUserId(userId, now + userIdTtlMillis));
+        }
+        return userId;
+    }
+
+    // after commit only: a delete that rolls back must not block the user for the token lifetime
+    @TransactionalEventListener
+    public void onUserDeletedEvent(UserDeletedEvent event) {
+        synchronized (userIdsByEmail) {
+            userIdsByEmail.remove(event.email());
+        }
+        synchronized (deletedUserIds) {
+            deletedUserIds.put(event.userId(), System.currentTimeMillis() + deletedUserTtlMillis);
+        }
     }
 
     /**
@@ -0,0 +1,24 @@
+package com.modulith.ecommerce.auth;
+
+import java.security.Principal;
+import java.time.Instant;
+
+/**
+ * Claims of a verified token, used as the principal of the authenticated request.
+ * @param userId User ID (null for tokens issued before the claim was added)
+ * @param email User email (token subject)
+ * @param role User role name (USER, ADMIN)
+ * @param expiresAt Token expiration
+ */
+public record JwtPrincipal(
+        Long userId,
+        String email,
+        String role,
+        Instant expiresAt
+) implements Principal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
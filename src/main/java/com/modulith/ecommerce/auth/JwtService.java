@@ -1,29 +1,75 @@
 package com.modulith.ecommerce.auth;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.function.Function;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Issues and verifies JWTs. The signing key and parser are built once. Verified tokens can be kept
+ * in a bounded concurrent map (by SHA-256 digest, until the token expires) so repeated requests with
+ * the same token skip the signature check; it is disabled by default (jwt.cache.max-size=0), an HMAC
+ * check is cheap and only worth skipping once jwt.cache.requests shows a high hit rate.
+ */
 @Service
 public class JwtService {
 
-    @Value("${jwt.secret}")
-    private String secret;
+    private static final String USER_ID_CLAIM = "uid";
+
+    private final SecretKey signingKey;
+
+    private final JwtParser parser;
+
+    private final Long expiration;
+
+    private final int cacheMaxSize;
 
-    @Value("${jwt.expiration}")
-    private Long expiration;
+    private final Map<String, JwtPrincipal> verified;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    public JwtService(
+            @Value("${jwt.secret}") String secret,
+            @Value("${jwt.expiration}") Long expiration,
+            @Value("${jwt.cache.max-size:0}") int cacheMaxSize,
+            MeterRegistry meterRegistry) {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
+        this.expiration = expiration;
+        this.cacheMaxSize = cacheMaxSize;
+        this.verified = new ConcurrentHashMap<>();
+
+        FunctionCounter.builder("jwt.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("jwt.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
 
-    public String generateToken(String username, String role) {
+    public String generateToken(Long userId, String username, String role) {
         Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, userId);
         claims.put("role", role);
         return createToken(claims, username);
     }
@@ -34,47 +80,67 @@ public class JwtService {
                 .subject(subject)
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+    /**
+     * Verifies signature and expiration of a token, parsing it only once.
+     * @param token Compact JWT
+     * @return Principal (user id, email, role and expiration) of the token
+     * @throws JwtException if the token is invalid or expired
+     */
+    public JwtPrincipal verify(String token) {
+        if (cacheMaxSize <= 0) {
+            return parse(token);
+        }
+
+        String digest = digest(token);
+        JwtPrincipal cached = verified.get(digest);
+        if (cached != null) {
+            if (cached.expiresAt().isAfter(Instant.now())) {
+                hits.increment();
+                return cached;
+            }
+            verified.remove(digest, cached);
+        }
+
+        misses.increment();
+        JwtPrincipal principal = parse(token);
+        verified.put(digest, principal);
+        if (verified.size() > cacheMaxSize) {
+            evict();
+        }
+        return principal;
     }
 
-    public String extractRole(String token) {
-        return extractClaim(token, claims -> claims.get("role", String.class));
+    // Drops expired tokens, then arbitrary ones down to 90% of the maximum so a full cache is not scanned on every miss
+    private void evict() {
+        Instant now = Instant.now();
+        verified.values().removeIf(principal -> !principal.expiresAt().isAfter(now));
+        int target = cacheMaxSize - cacheMaxSize / 10;
+        Iterator<String> digests = verified.keySet().iterator();
+        while (verified.size() > target && digests.hasNext()) {
+            digests.next();
+            digests.remove();
+        }
     }
 
-    public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private JwtPrincipal parse(String token) {
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        return new JwtPrincipal(
+                claims.get(USER_ID_CLAIM, Long.class),
+                claims.getSubject(),
+                claims.get("role", String.class),
+                claims.getExpiration().toInstant());
     }
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
-    }
-
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-    }
-
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    public Boolean validateToken(String token, String username) {
-        final String extractedUsername = extractUsername(token);
-        return (extractedUsername.equals(username) && !isTokenExpired(token));
-    }
-
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static String digest(String token) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
-
@@ -1,8 +1,12 @@
 package com.modulith.ecommerce.auth;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -16,6 +20,7 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 
@@ -34,29 +39,38 @@ public class SecurityConfig {
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
-                        // Public endpoints (no authentication required)
+                        // Streaming responses finish on an async dispatch, the request was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
+                        // Exports are admin only, matched before the public GET /products/{id}
+                        .requestMatchers(HttpMethod.GET, "/products/export", "/orders/export").hasRole("ADMIN")
+
+                        // Public endpoints (no authentication required). Rules with a method must use the
+                        // HttpMethod overload, a "GET" string would be matched as a path and allow any method
                         .requestMatchers("/auth/login", "/auth/register").permitAll()
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-ui.html").permitAll()
-                        .requestMatchers("GET", "/products", "/products/{id}").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/products", "/products/scroll", "/products/search", "/products/{id}").permitAll()
 
                         // User endpoints (requires USER or ADMIN role)
-                        .requestMatchers("GET", "/orders/user").hasAnyRole("USER", "ADMIN")
-                        .requestMatchers("POST", "/orders/{id}/cancel").hasAnyRole("USER", "ADMIN")
-                        .requestMatchers("GET", "/carts/user").hasAnyRole("USER", "ADMIN")
-                        .requestMatchers("POST", "/carts/checkout").hasAnyRole("USER", "ADMIN")
-                        .requestMatchers("PUT", "/carts").hasAnyRole("USER", "ADMIN")
-                        .requestMatchers("GET", "/users/me").hasAnyRole("USER", "ADMIN")
-                        .requestMatchers("PUT", "/users/me").hasAnyRole("USER", "ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/orders/user", "/orders/checkout/{checkoutId}").hasAnyRole("USER", "ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/orders/{id}/cancel").hasAnyRole("USER", "ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/carts/user").hasAnyRole("USER", "ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/carts/checkout").hasAnyRole("USER", "ADMIN")
+                        .requestMatchers(HttpMethod.PUT, "/carts", "/carts/items").hasAnyRole("USER", "ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/users/me").hasAnyRole("USER", "ADMIN")
+                        .requestMatchers(HttpMethod.PUT, "/users/me").hasAnyRole("USER", "ADMIN")
 
                         // Admin endpoints (requires ADMIN role)
                         .requestMatchers("/users/**").hasRole("ADMIN")
-                        .requestMatchers("POST", "/products").hasRole("ADMIN")
-                        .requestMatchers("PUT", "/products/{id}").hasRole("ADMIN")
-                        .requestMatchers("DELETE", "/products/{id}").hasRole("ADMIN")
-                        .requestMatchers("PATCH", "/products/{id}/stock").hasRole("ADMIN")
-                        .requestMatchers("GET", "/carts").hasRole("ADMIN")
-                        .requestMatchers("GET", "/orders/all").hasRole("ADMIN")
-                        .requestMatchers("GET", "/orders/{id}").hasRole("ADMIN")
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/products", "/products/import").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.PUT, "/products/{id}").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.DELETE, "/products/{id}").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.PATCH, "/products/stock", "/products/{id}/stock", "/products/{id}/stock/buckets").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/carts", "/carts/scroll").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/orders/all", "/orders/scroll").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/orders/{id}").hasRole("ADMIN")
 
                         // All other requests require authentication
                         .anyRequest().authenticated()
@@ -67,8 +81,16 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${app.auth.bcrypt.strength:10}") int strength,
+            @Value("${app.auth.bcrypt.pool-size:0}") int poolSize,
+            @Value("${app.auth.bcrypt.queue-capacity:64}") int queueCapacity,
+            @Value("${app.auth.bcrypt.retry-after:PT1S}") Duration retryAfter,
+            MeterRegistry meterRegistry) {
+        // 0 uses half of the cores, the other half stays available to the rest of the API
+        int threads = poolSize > 0 ? poolSize : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), threads, queueCapacity,
+                retryAfter, meterRegistry);
     }
 
     @Bean
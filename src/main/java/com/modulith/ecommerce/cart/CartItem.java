@@ -9,7 +9,8 @@ import lombok.NoArgsConstructor;
 
 @Entity
 @AllArgsConstructor
-@Table(name = "cart_items")
+@Table(name = "cart_items",
+        uniqueConstraints = @UniqueConstraint(name = "uk_cart_items_cart_product", columnNames = {"cart_id", "product_id"}))
 @Getter
 @NoArgsConstructor(force = true)
 public class CartItem {
@@ -36,8 +37,4 @@ public class CartItem {
         this.quantity = quantity;
     }
 
-    public CartItem updateQuantity(int newQuantity) {
-        return new CartItem(this.id, this.cart, this.productId, newQuantity);
-    }
-
 }
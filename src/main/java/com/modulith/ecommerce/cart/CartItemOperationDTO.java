@@ -0,0 +1,22 @@
+package com.modulith.ecommerce.cart;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "One change to the cart in a batch update")
+public record CartItemOperationDTO(
+        @Schema(description = "ADD adds to the current quantity, UPDATE sets it, REMOVE deletes the line",
+                example = "UPDATE", requiredMode = Schema.RequiredMode.REQUIRED)
+        Type type,
+
+        @Schema(description = "Product ID", example = "1", requiredMode = Schema.RequiredMode.REQUIRED)
+        Long productId,
+
+        @Schema(description = "Quantity, required for ADD and UPDATE", example = "2")
+        Integer quantity
+) {
+    public enum Type {
+        ADD,
+        UPDATE,
+        REMOVE
+    }
+}
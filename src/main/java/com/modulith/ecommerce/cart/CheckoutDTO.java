@@ -0,0 +1,24 @@
+package com.modulith.ecommerce.cart;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.UUID;
+
+@Schema(description = "Result of a checkout")
+public record CheckoutDTO(
+        @Schema(description = "Checkout ID, poll GET /orders/checkout/{checkoutId} for the created order",
+                example = "3f2b8c1e-9a4d-4e8b-b7a1-2c6d5e4f3a21")
+        UUID checkoutId,
+
+        @Schema(description = "Cart ID", example = "1")
+        Long cartId,
+
+        @Schema(description = "COMPLETED when the order was created in the request, ACCEPTED when it is created asynchronously",
+                example = "ACCEPTED")
+        Status status
+) {
+    public enum Status {
+        COMPLETED,
+        ACCEPTED
+    }
+}
@@ -0,0 +1,87 @@
+package com.modulith.ecommerce.cart.domain;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Deletes carts without activity for longer than the configured TTL, together with their items.
+ * Each chunk is a single statement over at most chunk-size carts, so no run holds locks for long;
+ * carts locked by a concurrent request are skipped and picked up by a later run.
+ */
+@Component
+@Slf4j
+public class AbandonedCartReaper {
+
+    // last activity expression must match idx_carts_last_activity in schema.sql
+    private static final String DELETE_CHUNK_SQL = """
+            with doomed as (
+                select id from carts
+                where coalesce(updated_at, created_at) < ?
+                order by id
+                limit ?
+                for update skip locked
+            ), deleted_items as (
+                delete from cart_items where cart_id in (select id from doomed)
+            )
+            delete from carts where id in (select id from doomed)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Duration ttl;
+
+    private final int chunkSize;
+
+    private final Counter deletedCarts;
+
+    private final Timer runTimer;
+
+    public AbandonedCartReaper(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.cart.reaper.ttl:P30D}") Duration ttl,
+            @Value("${app.cart.reaper.chunk-size:1000}") int chunkSize,
+            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+        this.chunkSize = chunkSize;
+        this.deletedCarts = Counter.builder("cart.reaper.deleted")
+                .description("Abandoned carts deleted")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("cart.reaper.run")
+                .description("Duration of abandoned cart reaper runs")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.cart.reaper.interval:PT1H}")
+    public void reap() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(ttl));
+        long start = System.nanoTime();
+        long total = 0;
+
+        int deleted;
+        do {
+            // outside a transaction every chunk commits on its own
+            deleted = jdbcTemplate.update(DELETE_CHUNK_SQL, cutoff, chunkSize);
+            deletedCarts.increment(deleted);
+            total += deleted;
+        } while (deleted == chunkSize);
+
+        long elapsed = System.nanoTime() - start;
+        runTimer.record(Duration.ofNanos(elapsed));
+
+        if (total > 0) {
+            log.info("Deleted {} abandoned carts older than {} in {} ms ({} carts/s)",
+                    total, ttl, elapsed / 1_000_000, Math.round(total / (elapsed / 1e9)));
+        }
+    }
+}
@@ -14,7 +14,7 @@ import java.util.List;
 
 @Entity
 @AllArgsConstructor
-@Table(name = "carts")
+@Table(name = "carts", indexes = @Index(name = "idx_carts_user_id", columnList = "user_id"))
 @Getter
 @Setter
 @NoArgsConstructor(force = true)
@@ -3,13 +3,18 @@ package com.modulith.ecommerce.cart.domain;
 import com.modulith.ecommerce.auth.AuthModuleAPI;
 import com.modulith.ecommerce.cart.AddCartItemDTO;
 import com.modulith.ecommerce.cart.CartDTO;
+import com.modulith.ecommerce.cart.CartItemOperationDTO;
+import com.modulith.ecommerce.cart.CheckoutDTO;
+import com.modulith.ecommerce.common.CursorPage;
 import com.modulith.ecommerce.common.PaymentMethod;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.data.web.SortDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -31,6 +36,13 @@ public class CartController {
         return service.addOrUpdateItem(userId, cartData);
     }
 
+    @PutMapping("/items")
+    @Operation(summary = "Apply a batch of add/update/remove operations to the current user's cart")
+    public CartDTO applyOperations(@RequestBody List<CartItemOperationDTO> operations) {
+        Long userId = authModuleAPI.getCurrentUserId();
+        return service.applyOperations(userId, operations);
+    }
+
     @GetMapping
     @Operation(summary = "Get all carts with pagination")
     public List<CartDTO> getAllCarts(
@@ -39,6 +51,15 @@ public class CartController {
         return service.getAllCarts(pageable);
     }
 
+    @GetMapping("/scroll")
+    @Operation(summary = "Get all carts with cursor pagination (no total count)")
+    public CursorPage<CartDTO> scrollCarts(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size,
+            @ParameterObject @SortDefault(sort = "id") Sort sort) {
+        return service.scrollCarts(after, sort, size);
+    }
+
     @GetMapping("/user")
     @Operation(summary = "Get current user's cart")
     public CartDTO getCurrentUserCart() {
@@ -48,7 +69,7 @@ public class CartController {
 
     @PostMapping("/checkout")
     @Operation(summary = "Checkout current user's cart")
-    public ResponseEntity<String> checkout(
+    public ResponseEntity<CheckoutDTO> checkout(
             @RequestParam PaymentMethod paymentMethod
     ) {
         Long userId = authModuleAPI.getCurrentUserId();
@@ -0,0 +1,64 @@
+package com.modulith.ecommerce.cart.domain;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Multi-line cart changes written with JDBC, bypassing the persistence context:
+ * the cart items must not be loaded as entities in the same transaction before these calls.
+ */
+@Repository
+@AllArgsConstructor
+public class CartItemBulkRepository {
+
+    private static final String UPSERT_SQL = """
+            insert into cart_items (cart_id, product_id, quantity) values (?, ?, ?)
+            on conflict (cart_id, product_id) do update set quantity = excluded.quantity
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Map<Long, Integer> findQuantities(Long cartId) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        jdbcTemplate.query(
+                "select product_id, quantity from cart_items where cart_id = ?",
+                rs -> {
+                    quantities.put(rs.getLong("product_id"), rs.getInt("quantity"));
+                },
+                cartId);
+        return quantities;
+    }
+
+    public void upsertAll(Long cartId, Map<Long, Integer> productQuantities) {
+        if (productQuantities.isEmpty()) {
+            return;
+        }
+        // sorted by product id so concurrent syncs of the same cart lock lines in the same order
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(new TreeMap<>(productQuantities).entrySet());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setLong(1, cartId);
+            ps.setLong(2, entry.getKey());
+            ps.setInt(3, entry.getValue());
+        });
+    }
+
+    public void deleteAll(Long cartId, Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(
+                "delete from cart_items where cart_id = ? and product_id = any(?)",
+                ps -> {
+                    ps.setLong(1, cartId);
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", productIds.toArray()));
+                });
+    }
+}
@@ -0,0 +1,33 @@
+package com.modulith.ecommerce.cart.domain;
+
+import com.modulith.ecommerce.cart.CartItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface CartItemRepository extends JpaRepository<CartItem, Long> {
+
+    @Query("select i from CartItem i where i.cart.id in :cartIds order by i.id")
+    List<CartItem> findByCartIdIn(Collection<Long> cartIds);
+
+    /**
+     * Sets the quantity of a product in the cart, inserting the line if it does not exist,
+     * and touches the cart's updated_at, all in one statement without loading the cart items.
+     * Clears the persistence context, carts loaded before must be read again.
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query(value = """
+            with touched as (update carts set updated_at = :updatedAt where id = :cartId)
+            insert into cart_items (cart_id, product_id, quantity)
+            values (:cartId, :productId, :quantity)
+            on conflict (cart_id, product_id) do update
+            set quantity = excluded.quantity
+            """, nativeQuery = true)
+    void upsert(Long cartId, Long productId, int quantity, LocalDateTime updatedAt);
+}
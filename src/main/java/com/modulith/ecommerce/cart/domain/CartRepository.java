@@ -1,11 +1,25 @@
 package com.modulith.ecommerce.cart.domain;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
 
     Optional<Cart> findCartByUserId(Long userId);
 
+    Window<Cart> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+    // clears the persistence context so the cart is read again with the lines written through JDBC
+    @Modifying(clearAutomatically = true)
+    @Query("update Cart c set c.updatedAt = :updatedAt where c.id = :cartId")
+    void touch(Long cartId, LocalDateTime updatedAt);
+
 }
@@ -3,44 +3,82 @@ package com.modulith.ecommerce.cart.domain;
 import com.modulith.ecommerce.cart.AddCartItemDTO;
 import com.modulith.ecommerce.cart.CartDTO;
 import com.modulith.ecommerce.cart.CartItem;
+import com.modulith.ecommerce.cart.CartItemOperationDTO;
+import com.modulith.ecommerce.cart.CheckoutDTO;
 import com.modulith.ecommerce.cart.CartItemDTO;
+import com.modulith.ecommerce.common.CheckoutMode;
+import com.modulith.ecommerce.common.CursorPage;
+import com.modulith.ecommerce.common.Money;
+import com.modulith.ecommerce.common.ScrollCursor;
 import com.modulith.ecommerce.event.CheckoutEvent;
 import com.modulith.ecommerce.exception.ResourceNotFoundException;
 import com.modulith.ecommerce.exception.InvalidOperationException;
+import com.modulith.ecommerce.exception.ValidationException;
 import com.modulith.ecommerce.common.PaymentMethod;
-import com.modulith.ecommerce.product.ProductDTO;
 import com.modulith.ecommerce.product.ProductModuleAPI;
-import lombok.AllArgsConstructor;
+import com.modulith.ecommerce.product.ProductSummaryDTO;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
-@AllArgsConstructor
 @Slf4j
 public class CartService {
+    private static final int MAX_CART_OPERATIONS = 500;
+
     private final CartRepository repository;
 
+    private final CartItemRepository itemRepository;
+
+    private final CartItemBulkRepository bulkRepository;
+
     private final ProductModuleAPI productModule;
 
     private final ApplicationEventPublisher eventPublisher;
 
+    // in async mode the order is created after the checkout commits
+    private final CheckoutMode checkoutMode;
+
+    public CartService(
+            CartRepository repository,
+            CartItemRepository itemRepository,
+            CartItemBulkRepository bulkRepository,
+            ProductModuleAPI productModule,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${app.checkout.mode:sync}") CheckoutMode checkoutMode) {
+        this.repository = repository;
+        this.itemRepository = itemRepository;
+        this.bulkRepository = bulkRepository;
+        this.productModule = productModule;
+        this.eventPublisher = eventPublisher;
+        this.checkoutMode = checkoutMode;
+    }
+
     public List<CartDTO> getAllCarts(Pageable pageable) {
-        return repository.findAll(pageable)
-                .map(this::buildCartDTO)
-                .getContent();
+        return buildCartDTOs(repository.findAll(pageable).getContent());
+    }
+
+    public CursorPage<CartDTO> scrollCarts(String after, Sort sort, int size) {
+        Window<Cart> window = repository.findAllBy(
+                ScrollCursor.decode(after, Cart.class, sort), sort, ScrollCursor.limit(size));
+        return CursorPage.of(window, buildCartDTOs(window.getContent()));
     }
 
     // returns cart by user id, or an empty cart if none exists
@@ -50,67 +88,139 @@ public class CartService {
         return buildCartDTO(cart);
     }
 
+    @Transactional
     public CartDTO addOrUpdateItem(Long userId, AddCartItemDTO cartData) {
+        if (cartData.productId() == null) {
+            throw new ValidationException("productId", "null", "is required");
+        }
+        if (cartData.quantity() <= 0) {
+            throw new ValidationException("quantity", String.valueOf(cartData.quantity()), "must be positive");
+        }
 
-        productModule.validateProductStock(cartData.productId(), cartData.quantity());
+        // holds the stock for this user until checkout or expiry, committed with the cart line
+        productModule.reserveStock(userId, cartData.productId(), cartData.quantity());
 
         Cart cart = repository.findCartByUserId(userId).orElseGet(() -> {
             Cart newCart = new Cart(null, userId, LocalDateTime.now(), null);
             return repository.save(newCart);
         });
 
-        Optional<CartItem> existingItemOpt = cart.getItems()
-                .stream()
-                .filter(
-                        item -> item
-                                .getProductId()
-                                .equals(cartData.productId()))
-                .findFirst();
-
-        if (existingItemOpt.isPresent()) {
-            CartItem existingItem = existingItemOpt.get();
-            CartItem updatedItem = existingItem.updateQuantity(cartData.quantity());
-            cart.removeItem(existingItem);
-            cart.addItem(updatedItem);
-        } else {
-            CartItem newItem = new CartItem(cart, cartData.productId(), cartData.quantity());
-            cart.addItem(newItem);
+        // Single upsert on (cart_id, product_id), the items are only loaded afterwards to build the response
+        itemRepository.upsert(cart.getId(), cartData.productId(), cartData.quantity(), LocalDateTime.now());
+
+        return buildCartDTO(repository.findById(cart.getId())
+                .orElseThrow(() -> new ResourceNotFoundException("Cart", cart.getId())));
+    }
+
+    /**
+     * Applies a list of add/update/remove operations to the user's cart in one transaction.
+     * Stock of every resulting line is validated and reserved with a single call before anything is written.
+     */
+    @Transactional
+    public CartDTO applyOperations(Long userId, List<CartItemOperationDTO> operations) {
+        validateOperations(operations);
+
+        Cart cart = repository.findCartByUserId(userId).orElseGet(() -> {
+            Cart newCart = new Cart(null, userId, LocalDateTime.now(), null);
+            return repository.save(newCart);
+        });
+
+        // the lines are read as plain values, the items collection is only loaded to build the response
+        Map<Long, Integer> quantities = bulkRepository.findQuantities(cart.getId());
+        Map<Long, Integer> changed = new HashMap<>();
+        Set<Long> removed = new HashSet<>();
+
+        for (CartItemOperationDTO operation : operations) {
+            Long productId = operation.productId();
+            if (operation.type() == CartItemOperationDTO.Type.REMOVE) {
+                if (quantities.remove(productId) != null) {
+                    removed.add(productId);
+                }
+                changed.remove(productId);
+                continue;
+            }
+            int quantity = operation.type() == CartItemOperationDTO.Type.ADD
+                    ? quantities.getOrDefault(productId, 0) + operation.quantity()
+                    : operation.quantity();
+            quantities.put(productId, quantity);
+            changed.put(productId, quantity);
+            removed.remove(productId);
         }
 
-        // Update updatedAt
-        cart.setUpdatedAt(LocalDateTime.now());
+        productModule.reserveStocks(userId, changed);
 
-        Cart savedCart = repository.save(cart);
-        return buildCartDTO(savedCart);
+        bulkRepository.deleteAll(cart.getId(), removed);
+        bulkRepository.upsertAll(cart.getId(), changed);
+        productModule.releaseStock(userId, removed);
+
+        repository.touch(cart.getId(), LocalDateTime.now());
+        return buildCartDTO(repository.findById(cart.getId())
+                .orElseThrow(() -> new ResourceNotFoundException("Cart", cart.getId())));
+    }
+
+    // Listing pages: one query for the items of all carts and one product lookup, whatever the page size
+    private List<CartDTO> buildCartDTOs(List<Cart> carts) {
+        if (carts.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> cartIds = carts.stream().map(Cart::getId).toList();
+        List<CartItem> items = itemRepository.findByCartIdIn(cartIds);
+        Map<Long, List<CartItem>> itemsByCart = items.stream()
+                .collect(Collectors.groupingBy(item -> item.getCart().getId()));
+        Map<Long, ProductSummaryDTO> productMap = findProducts(items);
+
+        return carts.stream()
+                .map(cart -> buildCartDTO(cart, itemsByCart.getOrDefault(cart.getId(), List.of()), productMap))
+                .toList();
     }
 
     private CartDTO buildCartDTO(Cart cart) {
-        List<CartItemDTO> enrichedItems = buildCartItemsDTO(cart.getItems());
+        List<CartItem> items = cart.getItems();
+        return buildCartDTO(cart, items, findProducts(items));
+    }
 
-        // Calculate total quantity
-        int totalQuantity = enrichedItems.stream()
-                .mapToInt(CartItemDTO::quantity)
-                .sum();
+    private CartDTO buildCartDTO(Cart cart, List<CartItem> items, Map<Long, ProductSummaryDTO> productMap) {
+        // Totals are accumulated in minor units, BigDecimal only appears in the response values
+        List<CartItemDTO> enrichedItems = new ArrayList<>(items.size());
+        int totalQuantity = 0;
+        long totalMinorUnits = 0;
 
-        // Calculate total price
-        BigDecimal totalPrice = enrichedItems.stream()
-                .map(CartItemDTO::subtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Iterate over original items to maintain order
+        // Filter items whose products were not found
+        for (CartItem item : items) {
+            ProductSummaryDTO product = productMap.get(item.getProductId());
+            if (product == null) {
+                continue;
+            }
+            Money subtotal = Money.of(product.priceAmount()).times(item.getQuantity());
+            totalQuantity += item.getQuantity();
+            totalMinorUnits = Math.addExact(totalMinorUnits, subtotal.minorUnits());
+
+            enrichedItems.add(new CartItemDTO(
+                    item.getId(),
+                    item.getProductId(),
+                    product.name(),
+                    product.priceAmount(),
+                    item.getQuantity(),
+                    subtotal.toBigDecimal()
+            ));
+        }
 
         return new CartDTO(
                 cart.getId(),
                 cart.getUserId(),
                 enrichedItems,
                 totalQuantity,
-                totalPrice,
+                new Money(totalMinorUnits).toBigDecimal(),
                 cart.getCreatedAt(),
                 cart.getUpdatedAt()
         );
     }
 
-    private List<CartItemDTO> buildCartItemsDTO(List<CartItem> items) {
+    private Map<Long, ProductSummaryDTO> findProducts(List<CartItem> items) {
         if (items.isEmpty()) {
-            return List.of();
+            return Map.of();
         }
 
         // Extract unique product IDs
@@ -119,33 +229,13 @@ public class CartService {
                 .collect(Collectors.toSet());
 
         // Fetch all products in a single call (avoids N+1)
-        Map<Long, ProductDTO> productMap = productModule.findAllProductsByIds(productIds)
+        return productModule.findProductSummariesByIds(productIds)
                 .stream()
-                .collect(Collectors.toMap(ProductDTO::id, Function.identity()));
-
-        // Iterate over original items to maintain order and process all
-        // Filter items whose products were not found
-        return items.stream()
-                .filter(item -> productMap.containsKey(item.getProductId()))
-                .map(item -> {
-                    ProductDTO product = productMap.get(item.getProductId());
-                    BigDecimal subtotal = product.priceAmount()
-                            .multiply(BigDecimal.valueOf(item.getQuantity()));
-                    
-                    return new CartItemDTO(
-                            item.getId(),
-                            item.getProductId(),
-                            product.name(),
-                            product.priceAmount(),
-                            item.getQuantity(),
-                            subtotal
-                    );
-                })
-                .toList();
+                .collect(Collectors.toMap(ProductSummaryDTO::id, Function.identity()));
     }
 
     @Transactional
-    public ResponseEntity<String> checkout(Long userId, PaymentMethod paymentMethod) {
+    public ResponseEntity<CheckoutDTO> checkout(Long userId, PaymentMethod paymentMethod) {
 
         Cart cart = findCartByUser(userId);
 
@@ -154,21 +244,38 @@ public class CartService {
         Map<Long, Integer> productQuantities = cart.getItems().stream()
                 .collect(Collectors.toMap(CartItem::getProductId, CartItem::getQuantity));
 
-        productModule.validateProductsStock(productQuantities);
+        productModule.validateProductsAvailable(userId, productQuantities);
+
+        // name and price are snapshotted into the order, it never looks products up again,
+        // so they are read from the database and not from the catalog cache
+        Map<Long, ProductSummaryDTO> productMap = productModule.loadProductSummariesByIds(productQuantities.keySet())
+                .stream()
+                .collect(Collectors.toMap(ProductSummaryDTO::id, Function.identity()));
 
         List<CheckoutEvent.CheckoutItem> checkoutItems = cart.getItems().stream()
-                .map(item -> new CheckoutEvent.CheckoutItem(
-                        item.getProductId(),
-                        item.getQuantity()
-                ))
+                .map(item -> {
+                    ProductSummaryDTO product = productMap.get(item.getProductId());
+                    if (product == null) {
+                        throw new ResourceNotFoundException("Product", item.getProductId());
+                    }
+                    return new CheckoutEvent.CheckoutItem(
+                            item.getProductId(),
+                            item.getQuantity(),
+                            product.name(),
+                            product.priceAmount()
+                    );
+                })
                 .toList();
 
-        // Publish checkout event
+        // Publish checkout event: stock is decremented in this transaction, the order is created
+        // here (sync) or from the event_publication outbox after commit (async)
+        UUID checkoutId = UUID.randomUUID();
         CheckoutEvent event = new CheckoutEvent(
                 cart.getId(),
                 userId,
                 checkoutItems,
-                paymentMethod
+                paymentMethod,
+                checkoutId
         );
 
             eventPublisher.publishEvent(event);
@@ -180,7 +287,10 @@ public class CartService {
 
         repository.save(cart);
 
-        return ResponseEntity.ok("Checkout completed successfully for cart ID: " + cart.getId());
+        if (checkoutMode == CheckoutMode.ASYNC) {
+            return ResponseEntity.accepted().body(new CheckoutDTO(checkoutId, cart.getId(), CheckoutDTO.Status.ACCEPTED));
+        }
+        return ResponseEntity.ok(new CheckoutDTO(checkoutId, cart.getId(), CheckoutDTO.Status.COMPLETED));
     }
 
     private Cart findCartByUser(Long userId) {
@@ -188,6 +298,26 @@ public class CartService {
                 .orElseThrow(() -> new ResourceNotFoundException("Cart", "user_id", userId));
     }
 
+    private void validateOperations(List<CartItemOperationDTO> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new ValidationException("operations", "[]", "cannot be empty");
+        }
+        if (operations.size() > MAX_CART_OPERATIONS) {
+            throw new ValidationException("operations", String.valueOf(operations.size()),
+                    "cannot have more than " + MAX_CART_OPERATIONS + " entries");
+        }
+        for (CartItemOperationDTO operation : operations) {
+            if (operation.type() == null || operation.productId() == null) {
+                throw new ValidationException("operation", String.valueOf(operation), "requires type and productId");
+            }
+            if (operation.type() != CartItemOperationDTO.Type.REMOVE
+                    && (operation.quantity() == null || operation.quantity() <= 0)) {
+                throw new ValidationException("quantity", String.valueOf(operation.quantity()),
+                        "must be positive for " + operation.type());
+            }
+        }
+    }
+
     private void validateCartEmpty(Cart cart) {
         if (cart.getItems().isEmpty()) {
             throw new InvalidOperationException("checkout", "cart is empty");
@@ -0,0 +1,12 @@
+package com.modulith.ecommerce.common;
+
+/**
+ * How checkout creates the order, bound from app.checkout.mode.
+ * An unknown value fails the startup instead of leaving checkout without an order listener.
+ */
+public enum CheckoutMode {
+    /** The order is created inside the checkout transaction */
+    SYNC,
+    /** The order is created after the checkout commits, from the event_publication outbox */
+    ASYNC
+}
@@ -0,0 +1,22 @@
+package com.modulith.ecommerce.common;
+
+import org.springframework.context.annotation.Conditional;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Registers the component only for the given app.checkout.mode. The property is bound to
+ * CheckoutMode the same way CartService binds it, so both always agree on the mode.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Conditional(OnCheckoutModeCondition.class)
+public @interface ConditionalOnCheckoutMode {
+
+    CheckoutMode value();
+}
@@ -0,0 +1,32 @@
+package com.modulith.ecommerce.common;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.data.domain.Window;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Schema(description = "Page of a keyset (cursor) listing, without total count")
+public record CursorPage<T>(
+        @Schema(description = "Items of the current page")
+        List<T> items,
+
+        @Schema(description = "Opaque cursor to pass as 'after' to fetch the next page, null on the last page",
+                example = "eyJpZCI6IjIwIn0")
+        String next,
+
+        @Schema(description = "Whether there are more items after this page", example = "true")
+        boolean hasNext
+) {
+
+    public static <E, T> CursorPage<T> of(Window<E> window, Function<E, T> mapper) {
+        return of(window, window.getContent().stream().map(mapper).toList());
+    }
+
+    public static <E, T> CursorPage<T> of(Window<E> window, List<T> items) {
+        String next = window.hasNext() && !window.isEmpty()
+                ? ScrollCursor.encode(window.positionAt(window.size() - 1))
+                : null;
+        return new CursorPage<>(items, next, next != null);
+    }
+}
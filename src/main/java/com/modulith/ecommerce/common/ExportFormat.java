@@ -0,0 +1,51 @@
+package com.modulith.ecommerce.common;
+
+import org.springframework.http.MediaType;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Formats of the streaming export endpoints.
+ */
+public enum ExportFormat {
+    CSV("text/csv", "csv"),
+    NDJSON(MediaType.APPLICATION_NDJSON_VALUE, "ndjson");
+
+    private final String mediaType;
+
+    private final String extension;
+
+    ExportFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType mediaType() {
+        return MediaType.parseMediaType(mediaType);
+    }
+
+    public String contentDisposition(String baseName) {
+        return "attachment; filename=\"" + baseName + "." + extension + "\"";
+    }
+
+    /**
+     * One CSV line (RFC 4180 quoting, null as empty field), including the line break.
+     */
+    public static String csvLine(Object... values) {
+        return Arrays.stream(values)
+                .map(ExportFormat::csvField)
+                .collect(Collectors.joining(",", "", "\n"));
+    }
+
+    private static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return "\"" + text.replace("\"", "\"\"") + "\"";
+    }
+}
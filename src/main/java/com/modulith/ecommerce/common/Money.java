@@ -0,0 +1,32 @@
+package com.modulith.ecommerce.common;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amount of money in minor units (cents), used for totals so the arithmetic stays in a long.
+ * Converts exactly from and to the BigDecimal prices with two decimal places used at the API edges;
+ * amounts with more decimals or overflowing a long fail with ArithmeticException.
+ */
+public record Money(long minorUnits) {
+
+    public static final int SCALE = 2;
+
+    public static final Money ZERO = new Money(0);
+
+    public static Money of(BigDecimal amount) {
+        return new Money(amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+    }
+
+    public Money times(int quantity) {
+        return new Money(Math.multiplyExact(minorUnits, quantity));
+    }
+
+    public Money plus(Money other) {
+        return new Money(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+}
@@ -0,0 +1,20 @@
+package com.modulith.ecommerce.common;
+
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import java.util.Map;
+
+class OnCheckoutModeCondition implements Condition {
+
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        Map<String, Object> attributes = metadata.getAnnotationAttributes(ConditionalOnCheckoutMode.class.getName());
+        CheckoutMode mode = Binder.get(context.getEnvironment())
+                .bind("app.checkout.mode", CheckoutMode.class)
+                .orElse(CheckoutMode.SYNC);
+        return mode == attributes.get("value");
+    }
+}
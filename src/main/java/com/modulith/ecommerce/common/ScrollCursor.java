@@ -0,0 +1,126 @@
+package com.modulith.ecommerce.common;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.modulith.ecommerce.exception.ValidationException;
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.ReflectionUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Encodes keyset scroll positions as opaque 'after' tokens and back.
+ * The token holds the values of the sort properties plus the id of the last row of a page,
+ * so the next page is a seek on (sort key, id) instead of an offset.
+ */
+public final class ScrollCursor {
+
+    private static final String ID_PROPERTY = "id";
+
+    // same upper bound Spring Data applies to Pageable sizes
+    private static final int MAX_PAGE_SIZE = 2000;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final TypeReference<LinkedHashMap<String, String>> KEYS_TYPE = new TypeReference<>() {};
+
+    private ScrollCursor() {
+    }
+
+    public static Limit limit(int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ValidationException("size", String.valueOf(size), "must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return Limit.of(size);
+    }
+
+    public static String encode(ScrollPosition position) {
+        if (!(position instanceof KeysetScrollPosition keyset)) {
+            throw new IllegalArgumentException("Only keyset positions can be encoded as cursor");
+        }
+
+        Map<String, String> keys = new LinkedHashMap<>();
+        keyset.getKeys().forEach((key, value) -> keys.put(key, value == null ? null : value.toString()));
+
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(keys));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to encode cursor", e);
+        }
+    }
+
+    /**
+     * Decodes an 'after' token into a forward keyset position for the given entity and sort.
+     * @param after Token returned as 'next' by the previous page, or null for the first page
+     * @param entityType Entity being scrolled, used to restore the key types
+     * @param sort Sort of the listing, must be the same used to produce the token
+     * @return Keyset scroll position
+     * @throws ValidationException if the token is malformed or does not match the sort
+     */
+    public static KeysetScrollPosition decode(String after, Class<?> entityType, Sort sort) {
+        if (after == null || after.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+
+        Map<String, String> keys;
+        try {
+            keys = MAPPER.readValue(Base64.getUrlDecoder().decode(after), KEYS_TYPE);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new ValidationException("after", after, "malformed cursor");
+        }
+
+        Set<String> expectedKeys = new LinkedHashSet<>();
+        sort.forEach(order -> expectedKeys.add(order.getProperty()));
+        expectedKeys.add(ID_PROPERTY);
+
+        if (!keys.keySet().equals(expectedKeys)) {
+            throw new ValidationException("after", after, "cursor does not match the requested sort");
+        }
+
+        Map<String, Object> typedKeys = new LinkedHashMap<>();
+        for (String property : expectedKeys) {
+            typedKeys.put(property, convert(keys.get(property), property, entityType, after));
+        }
+
+        return ScrollPosition.forward(typedKeys);
+    }
+
+    private static Object convert(String value, String property, Class<?> entityType, String after) {
+        Field field = ReflectionUtils.findField(entityType, property);
+        if (field == null) {
+            throw new ValidationException("sort", property, "unknown property");
+        }
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            Class<?> type = field.getType();
+            if (type == LocalDateTime.class) {
+                return LocalDateTime.parse(value);
+            }
+            if (type == OffsetDateTime.class) {
+                return OffsetDateTime.parse(value);
+            }
+            return DefaultConversionService.getSharedInstance().convert(value, type);
+        } catch (ConversionException | DateTimeParseException e) {
+            throw new ValidationException("after", after, "malformed cursor");
+        }
+    }
+}
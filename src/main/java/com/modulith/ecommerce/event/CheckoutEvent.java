@@ -2,7 +2,9 @@ package com.modulith.ecommerce.event;
 
 import com.modulith.ecommerce.common.PaymentMethod;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * Cart checkout event.
@@ -14,14 +16,18 @@ public record CheckoutEvent(
         Long cart,
         Long user,
         List<CheckoutItem> items,
-        PaymentMethod paymentMethod
+        PaymentMethod paymentMethod,
+        UUID checkoutId
 ) {
     /**
      * Checkout item representing a product and its quantity.
-     * Contains only essential data to reduce serialized event size.
+     * Name and unit price are the values at checkout time, so orders keep them
+     * even if the product changes later.
      */
     public record CheckoutItem(
             Long product,
-            Integer quantity
+            Integer quantity,
+            String name,
+            BigDecimal unitPrice
     ) {}
 }
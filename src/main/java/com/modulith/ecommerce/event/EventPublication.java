@@ -2,6 +2,7 @@ package com.modulith.ecommerce.event;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Column;
 import jakarta.persistence.Table;
 
@@ -11,9 +12,11 @@ import java.util.UUID;
 /***
  * This entity forces the Spring Modulith uses 'TEXT' to field serializedEvent
  * to avoid issues with event serialization size exceeding typical VARCHAR limits.
+ * completion_date is indexed for the incomplete-publication scans and the housekeeping purge.
  */
 @Entity
-@Table(name = "event_publication")
+@Table(name = "event_publication",
+        indexes = @Index(name = "idx_event_publication_completion_date", columnList = "completion_date"))
 public class EventPublication {
 
     @Id
@@ -0,0 +1,129 @@
+package com.modulith.ecommerce.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Removes completed event publications older than the retention window, in chunks of one statement
+ * each so no run holds long locks. When archiving is enabled the rows are moved to
+ * event_publication_archive (its large serialized_event values are compressed by PostgreSQL TOAST)
+ * instead of being deleted. Incomplete publications are never touched.
+ */
+@Component
+@Slf4j
+public class EventPublicationHousekeeping {
+
+    // completion_date is indexed (idx_event_publication_completion_date)
+    private static final String CHUNK_IDS = """
+            select id from event_publication
+            where completion_date < ?
+            order by completion_date
+            limit ?
+            for update skip locked
+            """;
+
+    private static final String DELETE_CHUNK_SQL =
+            "delete from event_publication where id in (" + CHUNK_IDS + ")";
+
+    private static final String ARCHIVE_CHUNK_SQL = """
+            with moved as (
+                delete from event_publication where id in (%s)
+                returning id, listener_id, event_type, serialized_event, publication_date, completion_date
+            )
+            insert into event_publication_archive
+                (id, listener_id, event_type, serialized_event, publication_date, completion_date)
+            select id, listener_id, event_type, serialized_event, publication_date, completion_date from moved
+            """.formatted(CHUNK_IDS);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Duration retention;
+
+    private final int chunkSize;
+
+    private final boolean archive;
+
+    private final Counter removed;
+
+    // refreshed on every run, reading them on each scrape would scan the table
+    private final AtomicLong tableBytes = new AtomicLong();
+
+    private final AtomicLong incomplete = new AtomicLong();
+
+    private final AtomicLong oldestIncompleteAgeSeconds = new AtomicLong();
+
+    public EventPublicationHousekeeping(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.events.housekeeping.retention:P7D}") Duration retention,
+            @Value("${app.events.housekeeping.chunk-size:5000}") int chunkSize,
+            @Value("${app.events.housekeeping.archive:false}") boolean archive,
+            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retention = retention;
+        this.chunkSize = chunkSize;
+        this.archive = archive;
+        this.removed = Counter.builder("event.publication.purged")
+                .description("Completed event publications removed from event_publication")
+                .tag("action", archive ? "archived" : "deleted")
+                .register(meterRegistry);
+        Gauge.builder("event.publication.table.size", tableBytes, AtomicLong::get)
+                .description("Total size of the event_publication table including indexes and TOAST")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("event.publication.incomplete", incomplete, AtomicLong::get)
+                .description("Event publications not completed yet")
+                .register(meterRegistry);
+        Gauge.builder("event.publication.incomplete.oldest.age", oldestIncompleteAgeSeconds, AtomicLong::get)
+                .description("Age of the oldest incomplete event publication")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.events.housekeeping.interval:PT1H}")
+    public void purge() {
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(retention));
+        String sql = archive ? ARCHIVE_CHUNK_SQL : DELETE_CHUNK_SQL;
+        long start = System.nanoTime();
+        long total = 0;
+
+        int chunk;
+        do {
+            // outside a transaction every chunk commits on its own
+            chunk = jdbcTemplate.update(sql, cutoff, chunkSize);
+            removed.increment(chunk);
+            total += chunk;
+        } while (chunk == chunkSize);
+
+        refreshMetrics();
+
+        if (total > 0) {
+            log.info("{} {} completed event publications older than {} in {} ms",
+                    archive ? "Archived" : "Deleted", total, retention, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private void refreshMetrics() {
+        tableBytes.set(jdbcTemplate.queryForObject(
+                "select pg_total_relation_size('event_publication')", Long.class));
+        jdbcTemplate.query(
+                "select count(*) as pending, min(publication_date) as oldest from event_publication where completion_date is null",
+                rs -> {
+                    incomplete.set(rs.getLong("pending"));
+                    Timestamp oldest = rs.getTimestamp("oldest");
+                    oldestIncompleteAgeSeconds.set(oldest == null
+                            ? 0
+                            : Duration.between(oldest.toInstant(), Instant.now()).toSeconds());
+                });
+    }
+}
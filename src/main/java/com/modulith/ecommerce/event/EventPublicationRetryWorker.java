@@ -0,0 +1,265 @@
+package com.modulith.ecommerce.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.context.support.AbstractApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalApplicationListener;
+import org.springframework.util.ClassUtils;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers incomplete event publications again without waiting for a restart.
+ * Attempts are tracked in event_publication_retry: each run claims a batch of due publications
+ * (FOR UPDATE SKIP LOCKED, so several instances share the backlog without claiming the same rows),
+ * pushes their next attempt forward with exponential backoff and resubmits them on a bounded pool.
+ * A publication still incomplete after max-attempts is dead-lettered and no longer retried
+ * (deleting its event_publication_retry row puts it back in the queue).
+ * Delivery is at least once: a publication whose listener is still running elsewhere, or committed but
+ * was not marked completed yet, is delivered again, so every persisted listener must be idempotent
+ * (OrderService.createOrder by checkout id, ProductService.onOrderCancelledEvent by order id).
+ * min-age should still exceed the longest listener run to keep such duplicates rare.
+ */
+@Component
+@Slf4j
+public class EventPublicationRetryWorker {
+
+    // tracks incomplete publications old enough to not be in flight anymore
+    private static final String ENQUEUE_SQL = """
+            insert into event_publication_retry (publication_id, attempts, next_attempt_at)
+            select p.id, 0, p.publication_date from event_publication p
+            where p.completion_date is null and p.publication_date < ?
+            on conflict (publication_id) do nothing
+            """;
+
+    // the lock is taken on the retry row that is updated, so a row claimed by a concurrent run
+    // is either skipped or re-checked against its new next_attempt_at
+    private static final String CLAIM_SQL = """
+            update event_publication_retry r
+            set attempts = r.attempts + 1,
+                next_attempt_at = now() + least(? * power(2, r.attempts), ?) * interval '1 millisecond',
+                dead_lettered_at = case when r.attempts >= ? then now() end
+            where r.publication_id in (
+                select d.publication_id from event_publication_retry d
+                join event_publication p on p.id = d.publication_id
+                where d.dead_lettered_at is null and d.next_attempt_at <= now() and p.completion_date is null
+                order by d.next_attempt_at
+                limit ?
+                for update of d skip locked
+            )
+            returning r.publication_id, r.dead_lettered_at
+            """;
+
+    // completed, purged or archived publications are not retried anymore
+    private static final String CLEANUP_SQL = """
+            delete from event_publication_retry r
+            where not exists (
+                select 1 from event_publication p where p.id = r.publication_id and p.completion_date is null
+            )
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // the mapper Modulith serializes the events with
+    private final ObjectMapper objectMapper;
+
+    private final AbstractApplicationContext applicationContext;
+
+    private final ExecutorService executor;
+
+    private volatile Map<String, TransactionalApplicationListener<ApplicationEvent>> listenersById;
+
+    private final int batchSize;
+
+    private final int maxAttempts;
+
+    private final Duration minAge;
+
+    private final long initialBackoffMillis;
+
+    private final long maxBackoffMillis;
+
+    private final Counter resubmitted;
+
+    private final Counter deadLettered;
+
+    // refreshed on every run from the retry table
+    private final AtomicLong pending = new AtomicLong();
+
+    private final AtomicLong dead = new AtomicLong();
+
+    private final AtomicLong oldestPendingAgeSeconds = new AtomicLong();
+
+    public EventPublicationRetryWorker(
+            JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper,
+            AbstractApplicationContext applicationContext,
+            @Value("${app.events.retry.pool-size:4}") int poolSize,
+            @Value("${app.events.retry.batch-size:200}") int batchSize,
+            @Value("${app.events.retry.max-attempts:10}") int maxAttempts,
+            @Value("${app.events.retry.min-age:PT5M}") Duration minAge,
+            @Value("${app.events.retry.initial-backoff:PT1M}") Duration initialBackoff,
+            @Value("${app.events.retry.max-backoff:PT1H}") Duration maxBackoff,
+            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.applicationContext = applicationContext;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.minAge = minAge;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+        this.executor = Executors.newFixedThreadPool(poolSize, new CustomizableThreadFactory("event-retry-"));
+        this.resubmitted = Counter.builder("event.publication.retry.resubmitted")
+                .description("Incomplete event publications submitted again to their listener")
+                .register(meterRegistry);
+        this.deadLettered = Counter.builder("event.publication.retry.dead.lettered")
+                .description("Event publications given up after the maximum number of attempts")
+                .register(meterRegistry);
+        Gauge.builder("event.publication.retry.backlog", pending, AtomicLong::get)
+                .description("Incomplete event publications waiting for a retry")
+                .register(meterRegistry);
+        Gauge.builder("event.publication.retry.backlog.oldest.age", oldestPendingAgeSeconds, AtomicLong::get)
+                .description("Age of the oldest event publication waiting for a retry")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("event.publication.retry.dead", dead, AtomicLong::get)
+                .description("Dead-lettered event publications still incomplete")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.events.retry.interval:PT30S}")
+    public void retry() {
+        jdbcTemplate.update(CLEANUP_SQL);
+        jdbcTemplate.update(ENQUEUE_SQL, Timestamp.from(Instant.now().minus(minAge)));
+
+        Set<UUID> due = new HashSet<>();
+        // outside a transaction the claim commits right away, before the listeners run
+        jdbcTemplate.query(CLAIM_SQL,
+                rs -> {
+                    UUID id = rs.getObject("publication_id", UUID.class);
+                    if (rs.getTimestamp("dead_lettered_at") == null) {
+                        due.add(id);
+                    } else {
+                        deadLettered.increment();
+                        log.warn("Event publication {} dead-lettered after {} attempts", id, maxAttempts);
+                    }
+                },
+                initialBackoffMillis, maxBackoffMillis, maxAttempts, batchSize);
+
+        if (!due.isEmpty()) {
+            resubmit(due);
+        }
+
+        refreshMetrics();
+    }
+
+    // Only the claimed publications are read, once per run, and every one is handed to the pool.
+    // The listener is invoked the way Modulith resubmits it: its completion is registered by the
+    // listener's own interceptor, so a publication is only completed when the listener succeeds.
+    private void resubmit(Set<UUID> due) {
+        List<PendingPublication> publications = jdbcTemplate.query(
+                "select id, listener_id, event_type, serialized_event from event_publication"
+                        + " where id = any(?) and completion_date is null",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", due.toArray())),
+                (rs, rowNum) -> new PendingPublication(
+                        rs.getObject("id", UUID.class),
+                        rs.getString("listener_id"),
+                        rs.getString("event_type"),
+                        rs.getString("serialized_event")));
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Boolean>> results = publications.stream()
+                .map(publication -> CompletableFuture.supplyAsync(() -> deliver(publication), executor))
+                .toList();
+        long delivered = results.stream().filter(CompletableFuture::join).count();
+
+        resubmitted.increment(delivered);
+        log.info("Resubmitted {} of {} incomplete event publications in {} ms",
+                delivered, publications.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private boolean deliver(PendingPublication publication) {
+        try {
+            TransactionalApplicationListener<ApplicationEvent> listener = listeners().get(publication.listenerId());
+            if (listener == null) {
+                log.warn("No listener {} for event publication {}", publication.listenerId(), publication.id());
+                return false;
+            }
+            Object event = objectMapper.readerFor(
+                    ClassUtils.forName(publication.eventType(), getClass().getClassLoader()))
+                    .readValue(publication.serializedEvent());
+            listener.processEvent(new PayloadApplicationEvent<>(this, event));
+            return true;
+        } catch (Exception e) {
+            log.warn("Resubmission of event publication {} failed", publication.id(), e);
+            return false;
+        }
+    }
+
+    // the transactional listeners are registered once the context is refreshed and never change afterwards
+    @SuppressWarnings("unchecked")
+    private Map<String, TransactionalApplicationListener<ApplicationEvent>> listeners() {
+        Map<String, TransactionalApplicationListener<ApplicationEvent>> resolved = listenersById;
+        if (resolved == null) {
+            resolved = new HashMap<>();
+            for (ApplicationListener<?> listener : applicationContext.getApplicationListeners()) {
+                if (listener instanceof TransactionalApplicationListener<?> transactional) {
+                    resolved.put(transactional.getListenerId(),
+                            (TransactionalApplicationListener<ApplicationEvent>) transactional);
+                }
+            }
+            listenersById = resolved;
+        }
+        return resolved;
+    }
+
+    private record PendingPublication(UUID id, String listenerId, String eventType, String serializedEvent) {}
+
+    private void refreshMetrics() {
+        jdbcTemplate.query("""
+                        select count(*) filter (where dead_lettered_at is null) as pending,
+                               count(*) filter (where dead_lettered_at is not null) as dead,
+                               min(p.publication_date) filter (where dead_lettered_at is null) as oldest
+                        from event_publication_retry r
+                        join event_publication p on p.id = r.publication_id and p.completion_date is null
+                        """,
+                rs -> {
+                    pending.set(rs.getLong("pending"));
+                    dead.set(rs.getLong("dead"));
+                    Timestamp oldest = rs.getTimestamp("oldest");
+                    oldestPendingAgeSeconds.set(oldest == null
+                            ? 0
+                            : Duration.between(oldest.toInstant(), Instant.now()).toSeconds());
+                });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
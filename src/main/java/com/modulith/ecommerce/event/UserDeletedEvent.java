@@ -0,0 +1,11 @@
+package com.modulith.ecommerce.event;
+
+/**
+ * User deletion event.
+ * This event is published after a user is deleted.
+ * Caches keyed by the user's id or email must drop it.
+ */
+public record UserDeletedEvent(
+        Long userId,
+        String email
+) {}
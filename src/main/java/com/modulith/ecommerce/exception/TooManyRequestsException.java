@@ -0,0 +1,21 @@
+package com.modulith.ecommerce.exception;
+
+import java.time.Duration;
+
+/**
+ * Exception thrown when a request is rejected because the server is saturated.
+ * Returns HTTP 429 Too Many Requests with a Retry-After header.
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public TooManyRequestsException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
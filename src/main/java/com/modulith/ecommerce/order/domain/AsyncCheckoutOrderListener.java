@@ -0,0 +1,27 @@
+package com.modulith.ecommerce.order.domain;
+
+import com.modulith.ecommerce.common.CheckoutMode;
+import com.modulith.ecommerce.common.ConditionalOnCheckoutMode;
+import com.modulith.ecommerce.event.CheckoutEvent;
+import lombok.AllArgsConstructor;
+import org.springframework.modulith.events.ApplicationModuleListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the order after the checkout transaction commits (app.checkout.mode=async).
+ * The event is stored in the event_publication outbox with the checkout and marked completed only
+ * when the order is saved; incomplete publications are delivered again, which is safe because
+ * orders are unique per checkout id.
+ */
+@Component
+@AllArgsConstructor
+@ConditionalOnCheckoutMode(CheckoutMode.ASYNC)
+public class AsyncCheckoutOrderListener {
+
+    private final OrderService orderService;
+
+    @ApplicationModuleListener
+    public void onCheckoutEvent(CheckoutEvent event) {
+        orderService.createOrder(event);
+    }
+}
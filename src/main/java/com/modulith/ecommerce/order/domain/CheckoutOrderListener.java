@@ -0,0 +1,25 @@
+package com.modulith.ecommerce.order.domain;
+
+import com.modulith.ecommerce.common.CheckoutMode;
+import com.modulith.ecommerce.common.ConditionalOnCheckoutMode;
+import com.modulith.ecommerce.event.CheckoutEvent;
+import lombok.AllArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the order inside the checkout transaction (app.checkout.mode=sync, the default):
+ * a failure rolls back the whole checkout.
+ */
+@Component
+@AllArgsConstructor
+@ConditionalOnCheckoutMode(CheckoutMode.SYNC)
+public class CheckoutOrderListener {
+
+    private final OrderService orderService;
+
+    @EventListener
+    public void onCheckoutEvent(CheckoutEvent event) {
+        orderService.createOrder(event);
+    }
+}
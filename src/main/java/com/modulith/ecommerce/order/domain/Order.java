@@ -5,13 +5,15 @@ import com.modulith.ecommerce.common.PaymentMethod;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 @Entity
 @AllArgsConstructor
-@Table(name = "Orders")
+@Table(name = "Orders", indexes = @Index(name = "idx_orders_user_id", columnList = "user_id, id"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -24,6 +26,10 @@ public class Order {
     @Column(name = "user_id", nullable = false)
     private Long userId;
 
+    // one order per checkout, makes redelivered checkout events idempotent
+    @Column(name = "checkout_id", unique = true)
+    private UUID checkoutId;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "status", nullable = false)
     private OrderStatus status;
@@ -35,6 +41,12 @@ public class Order {
     @Column(name = "payment_method", nullable = false)
     private PaymentMethod paymentMethod;
 
+    @Column(name = "total_quantity")
+    private Integer totalQuantity;
+
+    @Column(name = "total_price")
+    private BigDecimal totalPrice;
+
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
@@ -1,16 +1,24 @@
 package com.modulith.ecommerce.order.domain;
 
 import com.modulith.ecommerce.auth.AuthModuleAPI;
+import com.modulith.ecommerce.common.CursorPage;
+import com.modulith.ecommerce.common.ExportFormat;
 import com.modulith.ecommerce.order.OrderDTO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.data.web.SortDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.UUID;
 
 @RestController
 @AllArgsConstructor
@@ -21,6 +29,8 @@ public class OrderController {
 
     private final AuthModuleAPI authModuleAPI;
 
+    private final OrderExportService exportService;
+
     @GetMapping()
     @Operation(summary = "Get all orders with pagination")
     public List<OrderDTO> findAllOrders(
@@ -29,6 +39,24 @@ public class OrderController {
         return orderService.getAllOrders(pageable);
     }
 
+    @GetMapping("/scroll")
+    @Operation(summary = "Get all orders with cursor pagination (no total count)")
+    public CursorPage<OrderDTO> scrollOrders(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size,
+            @ParameterObject @SortDefault(sort = "id") Sort sort){
+        return orderService.scrollOrders(after, sort, size);
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Stream the whole order history as CSV (one line per item) or NDJSON (one line per order)")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@RequestParam(defaultValue = "CSV") ExportFormat format){
+        return ResponseEntity.ok()
+                .contentType(format.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, format.contentDisposition("orders"))
+                .body(output -> exportService.exportOrders(output, format));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get order by ID")
     public OrderDTO findById(@PathVariable Long id){
@@ -36,10 +64,22 @@ public class OrderController {
     }
 
     @GetMapping("/user")
-    @Operation(summary = "Get current user's orders")
-    public List<OrderDTO> getCurrentUserOrders(){
+    @Operation(summary = "Get current user's orders with cursor pagination, newest first")
+    public CursorPage<OrderDTO> getCurrentUserOrders(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size,
+            @ParameterObject @SortDefault(sort = "id", direction = Sort.Direction.DESC) Sort sort){
+        Long userId = authModuleAPI.getCurrentUserId();
+        return orderService.findByUserId(userId, after, sort, size);
+    }
+
+    @GetMapping("/checkout/{checkoutId}")
+    @Operation(summary = "Get the order created by a checkout, 202 while it is still being created")
+    public ResponseEntity<OrderDTO> findByCheckoutId(@PathVariable UUID checkoutId){
         Long userId = authModuleAPI.getCurrentUserId();
-        return orderService.findByUserId(userId);
+        return orderService.findByCheckoutId(checkoutId, userId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.accepted().build());
     }
 
     @PostMapping("/{id}/cancel")
@@ -0,0 +1,29 @@
+package com.modulith.ecommerce.order.domain;
+
+import com.modulith.ecommerce.common.PaymentMethod;
+import com.modulith.ecommerce.order.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One order item joined with its order, as read by the streaming export (unmanaged projection).
+ * Item fields are null for orders without items.
+ */
+public record OrderExportRow(
+        Long orderId,
+        Long userId,
+        OrderStatus status,
+        PaymentMethod paymentMethod,
+        Integer totalQuantity,
+        BigDecimal totalPrice,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        Long itemId,
+        Long productId,
+        String productName,
+        Integer quantity,
+        BigDecimal unitPrice,
+        BigDecimal lineTotal
+) {
+}
@@ -0,0 +1,103 @@
+package com.modulith.ecommerce.order.domain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.modulith.ecommerce.common.ExportFormat;
+import com.modulith.ecommerce.order.OrderDTO;
+import com.modulith.ecommerce.order.OrderItemDTO;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Streaming export of the order history. Order items are read joined with their order, ordered by
+ * order id, from a forward-only database cursor as unmanaged projections. CSV has one line per item;
+ * NDJSON has one line per order, built from its consecutive rows, so only one order is held at a time.
+ */
+@Service
+@AllArgsConstructor
+@Slf4j
+public class OrderExportService {
+
+    private final OrderRepository repository;
+
+    private final ObjectMapper objectMapper;
+
+    // the cursor only lives inside a transaction
+    @Transactional(readOnly = true)
+    public void exportOrders(OutputStream output, ExportFormat format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        long orders = 0;
+
+        if (format == ExportFormat.CSV) {
+            writer.write(ExportFormat.csvLine("orderId", "userId", "status", "paymentMethod", "totalQuantity",
+                    "totalPrice", "createdAt", "updatedAt", "productId", "productName", "quantity", "unitPrice", "lineTotal"));
+        }
+
+        try (Stream<OrderExportRow> rows = repository.streamAllForExport()) {
+            Iterator<OrderExportRow> iterator = rows.iterator();
+            OrderExportRow current = null;
+            List<OrderItemDTO> items = new ArrayList<>();
+
+            while (iterator.hasNext()) {
+                OrderExportRow row = iterator.next();
+                if (format == ExportFormat.CSV) {
+                    writer.write(ExportFormat.csvLine(row.orderId(), row.userId(), row.status(), row.paymentMethod(),
+                            row.totalQuantity(), row.totalPrice(), row.createdAt(), row.updatedAt(), row.productId(),
+                            row.productName(), row.quantity(), row.unitPrice(), row.lineTotal()));
+                    if (current == null || !current.orderId().equals(row.orderId())) {
+                        orders++;
+                    }
+                    current = row;
+                    continue;
+                }
+
+                if (current != null && !current.orderId().equals(row.orderId())) {
+                    writeOrder(writer, current, items);
+                    orders++;
+                    items.clear();
+                }
+                current = row;
+                if (row.itemId() != null) {
+                    items.add(new OrderItemDTO(row.itemId(), row.productName(), row.productId(), row.quantity(),
+                            row.unitPrice(), row.lineTotal()));
+                }
+            }
+
+            if (format == ExportFormat.NDJSON && current != null) {
+                writeOrder(writer, current, items);
+                orders++;
+            }
+        }
+
+        writer.flush();
+        log.info("Exported {} orders as {}", orders, format);
+    }
+
+    private void writeOrder(Writer writer, OrderExportRow order, List<OrderItemDTO> items) throws IOException {
+        OrderDTO dto = new OrderDTO(
+                order.orderId(),
+                order.userId(),
+                order.status(),
+                order.updatedAt(),
+                order.createdAt(),
+                items,
+                order.paymentMethod(),
+                order.totalQuantity(),
+                order.totalPrice()
+        );
+        writer.write(objectMapper.writeValueAsString(dto));
+        writer.write('\n');
+    }
+}
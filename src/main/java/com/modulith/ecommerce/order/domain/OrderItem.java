@@ -1,11 +1,14 @@
 package com.modulith.ecommerce.order.domain;
 
+import com.modulith.ecommerce.common.Money;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.math.BigDecimal;
+
 @Entity
 @AllArgsConstructor
 @Table(name = "order_items")
@@ -27,9 +30,22 @@ public class OrderItem {
     @Column(name = "quantity", nullable = false)
     private Integer quantity;
 
-    public OrderItem(Long productId, Integer quantity) {
+    // snapshot of the product at checkout time
+    @Column(name = "product_name")
+    private String productName;
+
+    @Column(name = "unit_price")
+    private BigDecimal unitPrice;
+
+    @Column(name = "line_total")
+    private BigDecimal lineTotal;
+
+    public OrderItem(Long productId, Integer quantity, String productName, BigDecimal unitPrice) {
         this.productId = productId;
         this.quantity = quantity;
+        this.productName = productName;
+        this.unitPrice = unitPrice;
+        this.lineTotal = Money.of(unitPrice).times(quantity).toBigDecimal();
     }
 
 }
@@ -0,0 +1,13 @@
+package com.modulith.ecommerce.order.domain;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+
+    @Query("select i from OrderItem i where i.order.id in :orderIds order by i.id")
+    List<OrderItem> findByOrderIdIn(Collection<Long> orderIds);
+}
@@ -1,10 +1,35 @@
 package com.modulith.ecommerce.order.domain;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
-    List<Order> findByUserId(Long userId);
+    Optional<Order> findByCheckoutId(UUID checkoutId);
+
+    boolean existsByCheckoutId(UUID checkoutId);
+
+    Window<Order> findByUserId(Long userId, ScrollPosition position, Sort sort, Limit limit);
+
+    Window<Order> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+    // DTO projection, rows are never attached to the persistence context
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new com.modulith.ecommerce.order.domain.OrderExportRow(o.id, o.userId, o.status, o.paymentMethod, "
+            + "o.totalQuantity, o.totalPrice, o.createdAt, o.updatedAt, "
+            + "i.id, i.productId, i.productName, i.quantity, i.unitPrice, i.lineTotal) "
+            + "from Order o left join o.items i order by o.id, i.id")
+    Stream<OrderExportRow> streamAllForExport();
 }
@@ -1,5 +1,8 @@
 package com.modulith.ecommerce.order.domain;
 
+import com.modulith.ecommerce.common.CursorPage;
+import com.modulith.ecommerce.common.Money;
+import com.modulith.ecommerce.common.ScrollCursor;
 import com.modulith.ecommerce.event.CheckoutEvent;
 import com.modulith.ecommerce.event.OrderCancelledEvent;
 import com.modulith.ecommerce.exception.ResourceNotFoundException;
@@ -8,8 +11,6 @@ import com.modulith.ecommerce.auth.AuthModuleAPI;
 import com.modulith.ecommerce.order.OrderDTO;
 import com.modulith.ecommerce.order.OrderItemDTO;
 import com.modulith.ecommerce.order.OrderStatus;
-import com.modulith.ecommerce.product.ProductDTO;
-import com.modulith.ecommerce.product.ProductModuleAPI;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -17,13 +18,14 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.function.Function;
+import java.util.Optional;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -34,9 +36,9 @@ import org.springframework.transaction.annotation.Transactional;
 public class OrderService {
     private final OrderRepository repository;
 
-    private final ApplicationEventPublisher eventPublisher;
+    private final OrderItemRepository itemRepository;
 
-    private final ProductModuleAPI productModule;
+    private final ApplicationEventPublisher eventPublisher;
 
     private final AuthModuleAPI authModuleAPI;
 
@@ -45,23 +47,58 @@ public class OrderService {
         return buildOrderDTO(repository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Order", id)));
     }
 
-    public List<OrderDTO> findByUserId(Long id){
-        return repository.findByUserId(id).stream().map(this::buildOrderDTO).toList();
+    public CursorPage<OrderDTO> findByUserId(Long id, String after, Sort sort, int size){
+        Window<Order> window = repository.findByUserId(
+                id, ScrollCursor.decode(after, Order.class, sort), sort, ScrollCursor.limit(size));
+        return CursorPage.of(window, buildOrderDTOs(window.getContent()));
     }
 
     public List<OrderDTO> getAllOrders(Pageable pageable){
-        return repository.findAll(pageable)
-                .map(this::buildOrderDTO)
-                .getContent();
+        return buildOrderDTOs(repository.findAll(pageable).getContent());
     }
 
-    private OrderDTO buildOrderDTO(Order order){
+    public CursorPage<OrderDTO> scrollOrders(String after, Sort sort, int size){
+        Window<Order> window = repository.findAllBy(
+                ScrollCursor.decode(after, Order.class, sort), sort, ScrollCursor.limit(size));
+        return CursorPage.of(window, buildOrderDTOs(window.getContent()));
+    }
 
-        List<OrderItemDTO> items = buildOrderItemsDTO(order.getItems());
+    // Listing pages: the items of all orders are loaded with one query instead of one lazy load per order
+    private List<OrderDTO> buildOrderDTOs(List<Order> orders){
+        if (orders.isEmpty()) {
+            return List.of();
+        }
 
-        BigDecimal totalPrice = items.stream().map(OrderItemDTO::totalPrice).reduce(BigDecimal.ZERO, BigDecimal::add);
+        List<Long> orderIds = orders.stream().map(Order::getId).toList();
+        Map<Long, List<OrderItem>> itemsByOrder = itemRepository.findByOrderIdIn(orderIds).stream()
+                .collect(Collectors.groupingBy(item -> item.getOrder().getId()));
 
-        Integer totalQuantity = items.stream().map(OrderItemDTO::quantity).reduce(0, Integer::sum);
+        return orders.stream()
+                .map(order -> buildOrderDTO(order, itemsByOrder.getOrDefault(order.getId(), List.of())))
+                .toList();
+    }
+
+    private OrderDTO buildOrderDTO(Order order){
+        return buildOrderDTO(order, order.getItems());
+    }
+
+    private OrderDTO buildOrderDTO(Order order, List<OrderItem> orderItems){
+
+        List<OrderItemDTO> items = buildOrderItemsDTO(orderItems);
+
+        // totals are stored at checkout, only summed here for orders written before they existed
+        BigDecimal totalPrice = order.getTotalPrice();
+        Integer totalQuantity = order.getTotalQuantity();
+        if (totalPrice == null || totalQuantity == null) {
+            int quantity = 0;
+            long totalMinorUnits = 0;
+            for (OrderItemDTO item : items) {
+                quantity += item.quantity();
+                totalMinorUnits = Math.addExact(totalMinorUnits, Money.of(item.totalPrice()).minorUnits());
+            }
+            totalPrice = new Money(totalMinorUnits).toBigDecimal();
+            totalQuantity = quantity;
+        }
 
         return new OrderDTO(
                 order.getId(),
@@ -77,38 +114,18 @@ public class OrderService {
     }
 
     private List<OrderItemDTO> buildOrderItemsDTO(List<OrderItem> items){
-        if (items.isEmpty()) {
-            return List.of();
-        }
-
-        // Extract unique product IDs
-        Set<Long> productIds = items.stream()
-                .map(OrderItem::getProductId)
-                .collect(Collectors.toSet());
-
-        // Fetch all products in a single call (avoids N+1)
-        Map<Long, ProductDTO> productMap = productModule.findAllProductsByIds(productIds)
-                .stream()
-                .collect(Collectors.toMap(ProductDTO::id, Function.identity()));
-
-        // Iterate over original items to maintain order and process all
-        // Filter items whose products were not found
+        // Items carry the product snapshot taken at checkout, no product lookup needed
+        // Legacy items without a snapshot (product deleted before backfill) are skipped
         return items.stream()
-                .filter(item -> productMap.containsKey(item.getProductId()))
-                .map(item -> {
-                    ProductDTO product = productMap.get(item.getProductId());
-                    BigDecimal totalPrice = product.priceAmount()
-                            .multiply(BigDecimal.valueOf(item.getQuantity()));
-                    
-                    return new OrderItemDTO(
-                            item.getId(),
-                            product.name(),
-                            item.getProductId(),
-                            item.getQuantity(),
-                            product.priceAmount(),
-                            totalPrice
-                    );
-                })
+                .filter(item -> item.getUnitPrice() != null)
+                .map(item -> new OrderItemDTO(
+                        item.getId(),
+                        item.getProductName(),
+                        item.getProductId(),
+                        item.getQuantity(),
+                        item.getUnitPrice(),
+                        item.getLineTotal()
+                ))
                 .toList();
     }
 
@@ -119,7 +136,7 @@ public class OrderService {
         Order order = findOrderById(orderId);
 
         // Validate that the user owns the order (unless admin)
-        validateOrderOwnership(order, userId);
+        validateOrderOwnership(order, userId, "cancel order", "user can only cancel their own orders");
 
         validateOrderStatusToCancel(order);
 
@@ -150,39 +167,69 @@ public class OrderService {
         return buildOrderDTO(cancelledOrder);
     }
 
-    @EventListener
-    public void onCheckoutEvent(CheckoutEvent event) {
+    /**
+     * Finds the order created by a checkout.
+     * @return empty while the order is not created yet (asynchronous checkout)
+     */
+    public Optional<OrderDTO> findByCheckoutId(UUID checkoutId, Long userId) {
+        Optional<Order> order = repository.findByCheckoutId(checkoutId);
+        order.ifPresent(found -> validateOrderOwnership(found, userId, "view order", "user can only view their own orders"));
+        return order.map(this::buildOrderDTO);
+    }
+
+    /**
+     * Creates the order of a checkout, called by the checkout listeners. Does nothing if the
+     * checkout already has an order, so redelivered events are harmless.
+     */
+    @Transactional
+    public void createOrder(CheckoutEvent event) {
         log.info("Received checkout event for user: {}, cart: {}", event.user(), event.cart());
 
-            // Create the order
-            Order order = Order.builder()
-                    .userId(event.user())
-                    .status(OrderStatus.PENDING)
-                    .updatedAt(LocalDateTime.now())
-                    .createdAt(LocalDateTime.now())
-                    .paymentMethod(event.paymentMethod())
-                    .build();
-
-            // Create order items
-            List<OrderItem> orderItems = event.items().stream()
-                    .map(item -> {
-                        OrderItem orderItem = new OrderItem(
-                                item.product(),
-                                item.quantity()
-                        );
-                        orderItem.setOrder(order);
-                        return orderItem;
-                    })
-                    .toList();
-
-            order.setItems(orderItems);
-
-            // Save the order
-            Order savedOrder = repository.save(order);
-
-            log.info("Order created successfully. ID: {}, User: {}",
-                    savedOrder.getId(), savedOrder.getUserId());
+        if (event.checkoutId() != null && repository.existsByCheckoutId(event.checkoutId())) {
+            log.info("Order for checkout {} already exists, skipping", event.checkoutId());
+            return;
+        }
+
+        // Create the order
+        Order order = Order.builder()
+                .userId(event.user())
+                .checkoutId(event.checkoutId())
+                .status(OrderStatus.PENDING)
+                .updatedAt(LocalDateTime.now())
+                .createdAt(LocalDateTime.now())
+                .paymentMethod(event.paymentMethod())
+                .build();
+
+        // Create order items
+        List<OrderItem> orderItems = event.items().stream()
+                .map(item -> {
+                    OrderItem orderItem = new OrderItem(
+                            item.product(),
+                            item.quantity(),
+                            item.name(),
+                            item.unitPrice()
+                    );
+                    orderItem.setOrder(order);
+                    return orderItem;
+                })
+                .toList();
+
+        order.setItems(orderItems);
+
+        int totalQuantity = 0;
+        long totalMinorUnits = 0;
+        for (OrderItem item : orderItems) {
+            totalQuantity += item.getQuantity();
+            totalMinorUnits = Math.addExact(totalMinorUnits, Money.of(item.getLineTotal()).minorUnits());
+        }
+        order.setTotalQuantity(totalQuantity);
+        order.setTotalPrice(new Money(totalMinorUnits).toBigDecimal());
+
+        // Save the order
+        Order savedOrder = repository.save(order);
 
+        log.info("Order created successfully. ID: {}, User: {}",
+                savedOrder.getId(), savedOrder.getUserId());
     }
 
     private Order findOrderById(Long id){
@@ -190,15 +237,15 @@ public class OrderService {
                 .orElseThrow(() -> new ResourceNotFoundException("Order", id));
     }
 
-    private void validateOrderOwnership(Order order, Long userId) {
-        // Admins can cancel any order
+    private void validateOrderOwnership(Order order, Long userId, String operation, String reason) {
+        // Admins can access any order
         if (authModuleAPI.isAdmin()) {
             return;
         }
         
-        // Regular users can only cancel their own orders
+        // Regular users can only access their own orders
         if (!order.getUserId().equals(userId)) {
-            throw new InvalidOperationException("cancel order", "user can only cancel their own orders");
+            throw new InvalidOperationException(operation, reason);
         }
     }
 
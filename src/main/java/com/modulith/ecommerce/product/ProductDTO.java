@@ -13,11 +13,15 @@ public record ProductDTO(
 ) {
 
     public static ProductDTO fromEntity(Product product) {
+        return fromEntity(product, product.getStock());
+    }
+
+    public static ProductDTO fromEntity(Product product, int stock) {
         return new ProductDTO(
                 product.getId(),
                 product.getName(),
                 product.getDescription(),
                 product.getPriceAmount(),
-                product.getStock());
+                stock);
     }
 }
@@ -0,0 +1,38 @@
+package com.modulith.ecommerce.product;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Summary of a bulk product import")
+public record ProductImportResultDTO(
+        @Schema(description = "Data rows read from the file", example = "100000")
+        long rowsRead,
+
+        @Schema(description = "Products created", example = "99000")
+        long inserted,
+
+        @Schema(description = "Existing products updated (rows with id)", example = "990")
+        long updated,
+
+        @Schema(description = "Rows rejected", example = "10")
+        long failed,
+
+        @Schema(description = "Rejected rows, capped to the first errors of the file")
+        List<RowError> errors,
+
+        @Schema(description = "Import duration in milliseconds", example = "4200")
+        long durationMillis,
+
+        @Schema(description = "Throughput in rows per second", example = "23809.5")
+        double rowsPerSecond
+) {
+    @Schema(description = "Rejected row")
+    public record RowError(
+            @Schema(description = "Line number in the file (1-based)", example = "42")
+            long line,
+
+            @Schema(description = "Reason the row was rejected", example = "Invalid stock '-1': cannot be negative")
+            String message
+    ) {}
+}
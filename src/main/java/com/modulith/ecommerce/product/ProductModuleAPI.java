@@ -12,6 +12,22 @@ public interface ProductModuleAPI {
      * @return List of ProductDTOs
      */
     List<ProductDTO> findAllProductsByIds(Set<Long> productIds);
+
+    /**
+     * Find the summaries (id, name, price, stock) of products by their IDs.
+     * Read-only and cached, preferred for cross-module enrichment.
+     * @param productIds Set of product IDs
+     * @return List of ProductSummaryDTOs, in no particular order
+     */
+    List<ProductSummaryDTO> findProductSummariesByIds(Set<Long> productIds);
+
+    /**
+     * Read the current summaries (id, name, price, stock) of products by their IDs, bypassing the cache.
+     * Used where the values are persisted, like the order snapshot at checkout.
+     * @param productIds Set of product IDs
+     * @return List of ProductSummaryDTOs, in no particular order
+     */
+    List<ProductSummaryDTO> loadProductSummariesByIds(Set<Long> productIds);
     
     /**
      * Validate product stock
@@ -25,4 +41,36 @@ public interface ProductModuleAPI {
      * @param productQuantities Map of product IDs and required quantities
      */
     void validateProductsStock(Map<Long, Integer> productQuantities);
+
+    /**
+     * Create or replace a time-limited stock reservation of the user for a product
+     * @param userId User ID
+     * @param productId Product ID
+     * @param quantity Quantity to hold
+     * @throws com.modulith.ecommerce.exception.InsufficientStockException if the stock not reserved by other users is not enough
+     */
+    void reserveStock(Long userId, Long productId, int quantity);
+
+    /**
+     * Create or replace the user's reservations for several products. All products are validated
+     * with a single read before any reservation is taken.
+     * @param userId User ID
+     * @param productQuantities Map of product IDs and quantities to hold
+     * @throws com.modulith.ecommerce.exception.InsufficientStockException if the stock not reserved by other users is not enough for any product
+     */
+    void reserveStocks(Long userId, Map<Long, Integer> productQuantities);
+
+    /**
+     * Release the user's reservations of products removed from the cart
+     * @param userId User ID
+     * @param productIds Product IDs
+     */
+    void releaseStock(Long userId, Set<Long> productIds);
+
+    /**
+     * Validate products stock discounting the reservations of other users
+     * @param userId User ID whose own reservations count as available
+     * @param productQuantities Map of product IDs and required quantities
+     */
+    void validateProductsAvailable(Long userId, Map<Long, Integer> productQuantities);
 }
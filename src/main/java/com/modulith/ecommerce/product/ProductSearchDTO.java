@@ -0,0 +1,24 @@
+package com.modulith.ecommerce.product;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+
+@Schema(description = "Product search filters")
+public record ProductSearchDTO(
+        @Schema(description = "Full-text query over name and description", example = "smartphone 128gb")
+        String query,
+
+        @Schema(description = "Minimum price in BRL", example = "100.00")
+        BigDecimal minPrice,
+
+        @Schema(description = "Maximum price in BRL", example = "2000.00")
+        BigDecimal maxPrice,
+
+        @Schema(description = "Only products with stock available", example = "true")
+        Boolean inStock,
+
+        @Schema(description = "Result ordering (RELEVANCE falls back to id when there is no query)", example = "RELEVANCE")
+        ProductSearchSort orderBy
+) {
+}
@@ -0,0 +1,7 @@
+package com.modulith.ecommerce.product;
+
+public enum ProductSearchSort {
+    RELEVANCE,
+    PRICE_ASC,
+    PRICE_DESC
+}
@@ -0,0 +1,15 @@
+package com.modulith.ecommerce.product;
+
+import java.math.BigDecimal;
+
+/**
+ * Read-only product projection for cross-module lookups (cart and order enrichment).
+ * Carries only the columns those modules use.
+ */
+public record ProductSummaryDTO(
+        Long id,
+        String name,
+        BigDecimal priceAmount,
+        int stock
+) {
+}
@@ -0,0 +1,16 @@
+package com.modulith.ecommerce.product;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Stock correction of one product: either an absolute stock or a delta")
+public record StockAdjustmentDTO(
+        @Schema(description = "Product ID", example = "1", requiredMode = Schema.RequiredMode.REQUIRED)
+        Long id,
+
+        @Schema(description = "New absolute stock (exclusive with delta)", example = "50")
+        Integer stock,
+
+        @Schema(description = "Quantity to add, negative to remove (exclusive with stock)", example = "-3")
+        Integer delta
+) {
+}
@@ -0,0 +1,35 @@
+package com.modulith.ecommerce.product;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Result of a batch stock adjustment")
+public record StockAdjustmentResultDTO(
+        @Schema(description = "Entries applied", example = "49990")
+        int updated,
+
+        @Schema(description = "Entries not applied", example = "10")
+        int failed,
+
+        @Schema(description = "Result of each entry, in request order")
+        List<Item> items
+) {
+    public enum Status {
+        UPDATED,
+        NOT_FOUND,
+        INSUFFICIENT_STOCK
+    }
+
+    @Schema(description = "Result of one stock adjustment")
+    public record Item(
+            @Schema(description = "Product ID", example = "1")
+            Long id,
+
+            @Schema(description = "Outcome of the adjustment", example = "UPDATED")
+            Status status,
+
+            @Schema(description = "Effective stock after the adjustment, null when not applied", example = "47")
+            Integer stock
+    ) {}
+}
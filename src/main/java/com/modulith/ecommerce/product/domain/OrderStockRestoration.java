@@ -0,0 +1,27 @@
+package com.modulith.ecommerce.product.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marker of an order whose cancelled items were given back to stock. Written in the same
+ * transaction as the stock increments, so a redelivered OrderCancelledEvent restores nothing twice.
+ * Rows are written through ProductStockRepository.
+ */
+@Entity
+@AllArgsConstructor
+@Table(name = "order_stock_restorations")
+@Getter
+@NoArgsConstructor(force = true)
+public class OrderStockRestoration {
+    @Id
+    @Column(name = "order_id")
+    private final Long orderId;
+
+    @Column(name = "restored_at", nullable = false)
+    private final LocalDateTime restoredAt;
+}
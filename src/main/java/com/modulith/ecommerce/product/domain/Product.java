@@ -10,7 +10,9 @@ import java.time.LocalDateTime;
 
 @Entity
 @AllArgsConstructor
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_price_amount", columnList = "price_amount")
+})
 @Getter
 @NoArgsConstructor(force = true)
 public class Product {
@@ -35,4 +37,8 @@ public class Product {
 
     @Column(name = "updated_at")
     private final LocalDateTime updatedAt;
+
+    // number of ProductStockBucket rows holding part of the stock, 0 when not sharded
+    @Column(name = "stock_buckets", columnDefinition = "integer default 0 not null")
+    private final int stockBuckets;
 }
\ No newline at end of file
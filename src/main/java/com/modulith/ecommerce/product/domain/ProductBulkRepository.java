@@ -0,0 +1,60 @@
+package com.modulith.ecommerce.product.domain;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Plain JDBC batch writes for bulk product loads.
+ * Hibernate cannot batch inserts of IDENTITY entities, so bulk paths bypass the persistence context;
+ * with reWriteBatchedInserts the driver sends each batch as multi-row inserts.
+ */
+@Repository
+@AllArgsConstructor
+public class ProductBulkRepository {
+
+    private static final String INSERT_SQL =
+            "insert into products (name, description, price_amount, stock, created_at) values (?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_SQL =
+            "update products set name = ?, description = ?, price_amount = ?, stock = ?, updated_at = ? where id = ? and stock_buckets = 0";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    void insertAll(List<ProductImportRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setString(1, row.name());
+            ps.setString(2, row.description());
+            ps.setBigDecimal(3, row.priceAmount());
+            ps.setInt(4, row.stock());
+            ps.setTimestamp(5, now);
+        });
+    }
+
+    /**
+     * @return update count per row, in the same order as the given rows
+     * (0 when the id does not exist or the product has sharded stock)
+     */
+    int[] updateAll(List<ProductImportRow> rows) {
+        if (rows.isEmpty()) {
+            return new int[0];
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.batchUpdate(UPDATE_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setString(1, row.name());
+            ps.setString(2, row.description());
+            ps.setBigDecimal(3, row.priceAmount());
+            ps.setInt(4, row.stock());
+            ps.setTimestamp(5, now);
+            ps.setLong(6, row.id());
+        })[0];
+    }
+}
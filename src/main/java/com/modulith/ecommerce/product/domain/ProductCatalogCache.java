@@ -0,0 +1,180 @@
+package com.modulith.ecommerce.product.domain;
+
+import com.modulith.ecommerce.product.ProductSummaryDTO;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of ProductSummaryDTO by id used by cross-module lookups
+ * (cart and order enrichment). Entries are evicted by size (LRU) and by TTL.
+ * Stock checks must keep going to the database, this cache is for display data only.
+ */
+@Component
+@Slf4j
+public class ProductCatalogCache {
+
+    private final int maxSize;
+
+    private final long ttlNanos;
+
+    private final Map<Long, CachedProduct> entries;
+
+    // bumped on every invalidation so that loads racing with a write are not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final ProductVersionStamps versionStamps;
+
+    public ProductCatalogCache(
+            @Value("${app.product.cache.max-size:10000}") int maxSize,
+            @Value("${app.product.cache.ttl:PT5M}") Duration ttl,
+            ProductVersionStamps versionStamps,
+            MeterRegistry meterRegistry) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.versionStamps = versionStamps;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedProduct> eldest) {
+                if (size() > ProductCatalogCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        FunctionCounter.builder("product.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("product.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("product.cache.evictions", evictions, LongAdder::sum)
+                .register(meterRegistry);
+        Gauge.builder("product.cache.size", this, ProductCatalogCache::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached products for the given ids, loading only the missing ones.
+     * @param productIds Set of product IDs
+     * @param loader Loads the products that are not cached (receives only the misses)
+     * @return List of ProductSummaryDTOs found, in no particular order
+     */
+    public List<ProductSummaryDTO> getAll(Set<Long> productIds, Function<Set<Long>, List<ProductSummaryDTO>> loader) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+
+        List<ProductSummaryDTO> result = new ArrayList<>(productIds.size());
+        Set<Long> missing = new HashSet<>();
+        long now = System.nanoTime();
+
+        synchronized (entries) {
+            for (Long id : productIds) {
+                CachedProduct cached = entries.get(id);
+                if (cached == null) {
+                    missing.add(id);
+                } else if (cached.isExpired(now)) {
+                    entries.remove(id);
+                    evictions.increment();
+                    missing.add(id);
+                } else {
+                    result.add(cached.product());
+                }
+            }
+        }
+
+        hits.add(result.size());
+        misses.add(missing.size());
+
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long loadGeneration = generation.get();
+        List<ProductSummaryDTO> loaded = loader.apply(missing);
+        result.addAll(loaded);
+
+        long expiresAt = System.nanoTime() + ttlNanos;
+        synchronized (entries) {
+            if (generation.get() == loadGeneration) {
+                loaded.forEach(product -> entries.put(product.id(), new CachedProduct(product, expiresAt)));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Removes a product from the cache. When called inside a transaction the entry is
+     * removed again after commit, so concurrent readers cannot re-cache the old row.
+     * @param productId Product ID
+     */
+    public void invalidate(Long productId) {
+        invalidateAll(List.of(productId));
+    }
+
+    /**
+     * Removes several products from the cache, see {@link #invalidate(Long)}.
+     * @param productIds Product IDs
+     */
+    public void invalidateAll(Collection<Long> productIds) {
+        // also called with no ids after inserts, so that cached page versions are dropped
+        evict(productIds);
+
+        if (!productIds.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(productIds);
+                }
+            });
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void evict(Collection<Long> productIds) {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            productIds.forEach(entries::remove);
+        }
+        versionStamps.invalidate(productIds);
+        log.debug("Invalidated {} products from catalog cache", productIds.size());
+    }
+
+    private record CachedProduct(ProductSummaryDTO product, long expiresAt) {
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
@@ -1,15 +1,29 @@
 package com.modulith.ecommerce.product.domain;
 
+import com.modulith.ecommerce.common.CursorPage;
+import com.modulith.ecommerce.common.ExportFormat;
 import com.modulith.ecommerce.product.CreateProductDTO;
 import com.modulith.ecommerce.product.ProductDTO;
+import com.modulith.ecommerce.product.ProductImportResultDTO;
+import com.modulith.ecommerce.product.ProductSearchDTO;
+import com.modulith.ecommerce.product.StockAdjustmentDTO;
+import com.modulith.ecommerce.product.StockAdjustmentResultDTO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.data.web.SortDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -19,18 +33,63 @@ import java.util.List;
 public class ProductController {
     private final ProductService service;
 
+    private final ProductImportService importService;
+
+    private final ProductExportService exportService;
+
     @GetMapping("/{id}")
-    @Operation(summary = "Get product by ID")
-    public ProductDTO getProduct(@PathVariable Long id) {
-        return service.getProduct(id);
+    @Operation(summary = "Get product by ID (supports If-None-Match / If-Modified-Since)")
+    public ProductDTO getProduct(@PathVariable Long id, WebRequest request) {
+        // a known version lets a revalidation finish with 304 without touching the database
+        ProductVersionStamps.Stamp known = service.findProductStamp(id);
+        if (known != null) {
+            return request.checkNotModified(known.etag(), known.lastModified()) ? null : service.getProduct(id);
+        }
+
+        ProductVersionStamps.Versioned<ProductDTO> product = service.getVersionedProduct(id);
+        return request.checkNotModified(product.stamp().etag(), product.stamp().lastModified()) ? null : product.body();
     }
 
     @GetMapping
-    @Operation(summary = "Get all products with pagination")
+    @Operation(summary = "Get all products with pagination (supports If-None-Match / If-Modified-Since)")
     public List<ProductDTO> getAllProducts(
             @ParameterObject
-            @PageableDefault(size = 20, sort = "id") Pageable pageable) {
-        return service.getAllProducts(pageable);
+            @PageableDefault(size = 20, sort = "id") Pageable pageable,
+            WebRequest request) {
+        ProductVersionStamps.Stamp known = service.findProductsStamp(pageable);
+        if (known != null) {
+            return request.checkNotModified(known.etag(), known.lastModified()) ? null : service.getAllProducts(pageable);
+        }
+
+        ProductVersionStamps.Versioned<List<ProductDTO>> products = service.getVersionedProducts(pageable);
+        return request.checkNotModified(products.stamp().etag(), products.stamp().lastModified()) ? null : products.body();
+    }
+
+    @GetMapping("/scroll")
+    @Operation(summary = "Get all products with cursor pagination (no total count)")
+    public CursorPage<ProductDTO> scrollProducts(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size,
+            @ParameterObject @SortDefault(sort = "id") Sort sort) {
+        return service.scrollProducts(after, sort, size);
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Stream the whole catalog as CSV or NDJSON")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "CSV") ExportFormat format) {
+        return ResponseEntity.ok()
+                .contentType(format.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, format.contentDisposition("products"))
+                .body(output -> exportService.exportProducts(output, format));
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Search products by text, price range and availability")
+    public List<ProductDTO> searchProducts(
+            @ParameterObject ProductSearchDTO criteria,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return service.searchProducts(criteria, page, size);
     }
 
     @PostMapping
@@ -38,6 +97,18 @@ public class ProductController {
         return service.saveProduct(productDTO);
     }
 
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Bulk import products from NDJSON (rows with id update, rows without id create)")
+    public ProductImportResultDTO importProductsNdjson(InputStream body) {
+        return importService.importProducts(body, ProductImportService.Format.NDJSON);
+    }
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    @Operation(summary = "Bulk import products from CSV with header: id,name,description,priceAmount,stock")
+    public ProductImportResultDTO importProductsCsv(InputStream body) {
+        return importService.importProducts(body, ProductImportService.Format.CSV);
+    }
+
     @PutMapping("/{id}")
     public ProductDTO updateProduct(@PathVariable Long id, CreateProductDTO productDTO) {
         return service.updateProduct(id, productDTO);
@@ -47,8 +118,20 @@ public class ProductController {
         service.deleteProduct(id);
     }
 
+    @PatchMapping("/stock")
+    @Operation(summary = "Apply a batch of stock corrections (absolute stock or delta per product) in one transaction")
+    public StockAdjustmentResultDTO adjustStock(@RequestBody List<StockAdjustmentDTO> adjustments) {
+        return service.adjustStock(adjustments);
+    }
+
     @PatchMapping("/{id}/stock")
     public ProductDTO updateProductStock(@PathVariable Long id, @RequestParam int stock) {
         return service.updateProductStock(id, stock);
     }
+
+    @PatchMapping("/{id}/stock/buckets")
+    @Operation(summary = "Spread the stock of a hot product over N bucket rows (0 disables sharding)")
+    public ProductDTO updateStockBuckets(@PathVariable Long id, @RequestParam int buckets) {
+        return service.updateStockBuckets(id, buckets);
+    }
 }
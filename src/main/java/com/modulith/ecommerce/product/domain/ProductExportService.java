@@ -0,0 +1,61 @@
+package com.modulith.ecommerce.product.domain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.modulith.ecommerce.common.ExportFormat;
+import com.modulith.ecommerce.product.ProductDTO;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streaming export of the whole catalog. Rows come from a forward-only database cursor as
+ * unmanaged DTO projections and are written as they are read, so memory does not grow with the table.
+ */
+@Service
+@AllArgsConstructor
+@Slf4j
+public class ProductExportService {
+
+    private final ProductRepository repository;
+
+    private final ObjectMapper objectMapper;
+
+    // the cursor only lives inside a transaction
+    @Transactional(readOnly = true)
+    public void exportProducts(OutputStream output, ExportFormat format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        long rows = 0;
+
+        if (format == ExportFormat.CSV) {
+            writer.write(ExportFormat.csvLine("id", "name", "description", "priceAmount", "stock"));
+        }
+
+        try (Stream<ProductDTO> products = repository.streamAllForExport()) {
+            Iterator<ProductDTO> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                ProductDTO product = iterator.next();
+                if (format == ExportFormat.CSV) {
+                    writer.write(ExportFormat.csvLine(
+                            product.id(), product.name(), product.description(), product.priceAmount(), product.stock()));
+                } else {
+                    writer.write(objectMapper.writeValueAsString(product));
+                    writer.write('\n');
+                }
+                rows++;
+            }
+        }
+
+        writer.flush();
+        log.info("Exported {} products as {}", rows, format);
+    }
+}
@@ -0,0 +1,16 @@
+package com.modulith.ecommerce.product.domain;
+
+import java.math.BigDecimal;
+
+/**
+ * One parsed line of a bulk import file. Rows with id update the existing product,
+ * rows without id create a new one.
+ */
+record ProductImportRow(
+        Long id,
+        String name,
+        String description,
+        BigDecimal priceAmount,
+        Integer stock
+) {
+}
@@ -0,0 +1,267 @@
+package com.modulith.ecommerce.product.domain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.modulith.ecommerce.exception.ValidationException;
+import com.modulith.ecommerce.product.ProductImportResultDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming bulk import of products from NDJSON or CSV.
+ * The input is read line by line and written in batches, each batch in its own transaction,
+ * so memory stays bounded by the batch size regardless of the file size.
+ */
+@Service
+@Slf4j
+public class ProductImportService {
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    // keeps the response bounded for files where most rows are invalid
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final ProductBulkRepository bulkRepository;
+
+    private final ProductCatalogCache catalogCache;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectReader rowReader;
+
+    private final int batchSize;
+
+    public ProductImportService(
+            ProductBulkRepository bulkRepository,
+            ProductCatalogCache catalogCache,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            @Value("${app.product.import.batch-size:1000}") int batchSize) {
+        this.bulkRepository = bulkRepository;
+        this.catalogCache = catalogCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rowReader = objectMapper.readerFor(ProductImportRow.class);
+        this.batchSize = batchSize;
+    }
+
+    public ProductImportResultDTO importProducts(InputStream input, Format format) {
+        long start = System.nanoTime();
+        ImportRun run = new ImportRun();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            Map<String, Integer> csvColumns = format == Format.CSV ? readCsvHeader(reader) : null;
+            long lineNumber = format == Format.CSV ? 1 : 0;
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                run.rowsRead++;
+                try {
+                    ProductImportRow row = format == Format.CSV
+                            ? parseCsvRow(line, csvColumns)
+                            : rowReader.readValue(line);
+                    validateRow(row);
+                    run.pending.add(new PendingRow(lineNumber, row));
+                } catch (IOException | RuntimeException e) {
+                    run.reject(lineNumber, e.getMessage());
+                }
+
+                if (run.pending.size() >= batchSize) {
+                    flush(run);
+                }
+            }
+            flush(run);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read import file", e);
+        }
+
+        long durationMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        double rowsPerSecond = run.rowsRead * 1000.0 / durationMillis;
+
+        log.info("Product import finished: {} rows read, {} inserted, {} updated, {} failed in {} ms ({} rows/s)",
+                run.rowsRead, run.inserted, run.updated, run.failed, durationMillis, Math.round(rowsPerSecond));
+
+        return new ProductImportResultDTO(
+                run.rowsRead,
+                run.inserted,
+                run.updated,
+                run.failed,
+                run.errors,
+                durationMillis,
+                rowsPerSecond
+        );
+    }
+
+    private void flush(ImportRun run) {
+        if (run.pending.isEmpty()) {
+            return;
+        }
+
+        List<PendingRow> batch = run.pending;
+        run.pending = new ArrayList<>(batchSize);
+
+        List<ProductImportRow> inserts = new ArrayList<>();
+        List<PendingRow> updates = new ArrayList<>();
+        for (PendingRow pending : batch) {
+            if (pending.row().id() == null) {
+                inserts.add(pending.row());
+            } else {
+                updates.add(pending);
+            }
+        }
+
+        try {
+            int[] updateCounts = transactionTemplate.execute(status -> {
+                bulkRepository.insertAll(inserts);
+                return bulkRepository.updateAll(updates.stream().map(PendingRow::row).toList());
+            });
+
+            run.inserted += inserts.size();
+            List<Long> updatedIds = new ArrayList<>(updates.size());
+            for (int i = 0; i < updateCounts.length; i++) {
+                PendingRow pending = updates.get(i);
+                if (updateCounts[i] == 0) {
+                    run.reject(pending.line(), "Product not found or with sharded stock, id: " + pending.row().id());
+                } else {
+                    run.updated++;
+                    updatedIds.add(pending.row().id());
+                }
+            }
+            // inserted rows change listings too, so this runs even without updated ids
+            catalogCache.invalidateAll(updatedIds);
+        } catch (DataAccessException e) {
+            // the whole batch was rolled back
+            log.error("Product import batch of {} rows failed", batch.size(), e);
+            batch.forEach(pending -> run.reject(pending.line(), "Batch rejected by database: " + e.getMostSpecificCause().getMessage()));
+        }
+    }
+
+    private void validateRow(ProductImportRow row) {
+        if (row.name() == null || row.name().isBlank()) {
+            throw new ValidationException("name", String.valueOf(row.name()), "is required");
+        }
+        if (row.priceAmount() == null || row.priceAmount().signum() < 0) {
+            throw new ValidationException("priceAmount", String.valueOf(row.priceAmount()), "must be zero or positive");
+        }
+        if (row.stock() == null || row.stock() < 0) {
+            throw new ValidationException("stock", String.valueOf(row.stock()), "cannot be negative");
+        }
+    }
+
+    private Map<String, Integer> readCsvHeader(BufferedReader reader) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            throw new ValidationException("file", "", "CSV header is missing");
+        }
+
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsvLine(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim(), i);
+        }
+
+        for (String required : List.of("name", "priceAmount", "stock")) {
+            if (!columns.containsKey(required)) {
+                throw new ValidationException("header", header, "missing column " + required);
+            }
+        }
+        return columns;
+    }
+
+    private ProductImportRow parseCsvRow(String line, Map<String, Integer> columns) {
+        List<String> values = splitCsvLine(line);
+        String id = csvValue(values, columns, "id");
+        String price = csvValue(values, columns, "priceAmount");
+        String stock = csvValue(values, columns, "stock");
+
+        try {
+            return new ProductImportRow(
+                    id == null ? null : Long.valueOf(id.trim()),
+                    csvValue(values, columns, "name"),
+                    csvValue(values, columns, "description"),
+                    price == null ? null : new BigDecimal(price.trim()),
+                    stock == null ? null : Integer.valueOf(stock.trim())
+            );
+        } catch (NumberFormatException e) {
+            throw new ValidationException("row", line, "invalid number");
+        }
+    }
+
+    private String csvValue(List<String> values, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= values.size() || values.get(index).isEmpty()) {
+            return null;
+        }
+        return values.get(index);
+    }
+
+    // RFC 4180 fields on a single line: comma separated, optionally quoted, "" escapes a quote
+    private List<String> splitCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private record PendingRow(long line, ProductImportRow row) {}
+
+    private final class ImportRun {
+        private List<PendingRow> pending = new ArrayList<>(batchSize);
+        private final List<ProductImportResultDTO.RowError> errors = new ArrayList<>();
+        private long rowsRead;
+        private long inserted;
+        private long updated;
+        private long failed;
+
+        private void reject(long line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ProductImportResultDTO.RowError(line, message));
+            }
+        }
+    }
+}
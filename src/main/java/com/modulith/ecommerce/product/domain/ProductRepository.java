@@ -1,14 +1,33 @@
 package com.modulith.ecommerce.product.domain;
 
+import com.modulith.ecommerce.product.ProductDTO;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
     @Query(value = "select * from products where id in (:ids)", nativeQuery = true)
     List<Product> findAllByIdIn(Set<Long> ids);
 
+    Window<Product> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+    // DTO projection, rows are never attached to the persistence context; effective stock includes buckets
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new com.modulith.ecommerce.product.ProductDTO(p.id, p.name, p.description, p.priceAmount, "
+            + "cast(p.stock + case when p.stockBuckets > 0 then coalesce("
+            + "(select sum(b.stock) from ProductStockBucket b where b.productId = p.id), 0) else 0 end as Integer)) "
+            + "from Product p order by p.id")
+    Stream<ProductDTO> streamAllForExport();
+
 }
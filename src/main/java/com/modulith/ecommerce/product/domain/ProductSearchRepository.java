@@ -0,0 +1,76 @@
+package com.modulith.ecommerce.product.domain;
+
+import com.modulith.ecommerce.product.ProductDTO;
+import com.modulith.ecommerce.product.ProductSearchDTO;
+import com.modulith.ecommerce.product.ProductSearchSort;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Product search backed by PostgreSQL full-text search.
+ * The tsvector expression must stay identical to the GIN index in schema.sql,
+ * otherwise the planner falls back to a sequential scan.
+ */
+@Repository
+@AllArgsConstructor
+public class ProductSearchRepository {
+
+    private static final String SEARCH_VECTOR =
+            "to_tsvector('simple', coalesce(name, '') || ' ' || coalesce(description, ''))";
+
+    private static final String SEARCH_QUERY = "websearch_to_tsquery('simple', :query)";
+
+    private static final String STOCK = ProductStockRepository.EFFECTIVE_STOCK_SQL;
+
+    private static final RowMapper<ProductDTO> PRODUCT_MAPPER = (rs, rowNum) -> new ProductDTO(
+            rs.getLong("id"),
+            rs.getString("name"),
+            rs.getString("description"),
+            rs.getBigDecimal("price_amount"),
+            rs.getInt("stock"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public List<ProductDTO> search(ProductSearchDTO criteria, int page, int size) {
+        boolean hasQuery = criteria.query() != null && !criteria.query().isBlank();
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("limit", size)
+                .addValue("offset", (long) page * size);
+
+        StringBuilder sql = new StringBuilder(
+                "select id, name, description, price_amount, " + STOCK + " as stock from products where 1 = 1");
+
+        if (hasQuery) {
+            sql.append(" and ").append(SEARCH_VECTOR).append(" @@ ").append(SEARCH_QUERY);
+            params.addValue("query", criteria.query());
+        }
+        if (criteria.minPrice() != null) {
+            sql.append(" and price_amount >= :minPrice");
+            params.addValue("minPrice", criteria.minPrice());
+        }
+        if (criteria.maxPrice() != null) {
+            sql.append(" and price_amount <= :maxPrice");
+            params.addValue("maxPrice", criteria.maxPrice());
+        }
+        if (Boolean.TRUE.equals(criteria.inStock())) {
+            sql.append(" and ").append(STOCK).append(" > 0");
+        }
+
+        ProductSearchSort sort = criteria.orderBy() == null ? ProductSearchSort.RELEVANCE : criteria.orderBy();
+        sql.append(switch (sort) {
+            case RELEVANCE -> hasQuery
+                    ? " order by ts_rank(" + SEARCH_VECTOR + ", " + SEARCH_QUERY + ") desc, id"
+                    : " order by id";
+            case PRICE_ASC -> " order by price_amount, id";
+            case PRICE_DESC -> " order by price_amount desc, id";
+        });
+        sql.append(" limit :limit offset :offset");
+
+        return jdbcTemplate.query(sql.toString(), params, PRODUCT_MAPPER);
+    }
+}
@@ -1,5 +1,7 @@
 package com.modulith.ecommerce.product.domain;
 
+import com.modulith.ecommerce.common.CursorPage;
+import com.modulith.ecommerce.common.ScrollCursor;
 import com.modulith.ecommerce.event.CheckoutEvent;
 import com.modulith.ecommerce.event.OrderCancelledEvent;
 import com.modulith.ecommerce.exception.ResourceNotFoundException;
@@ -8,14 +10,24 @@ import com.modulith.ecommerce.exception.InsufficientStockException;
 import com.modulith.ecommerce.product.CreateProductDTO;
 import com.modulith.ecommerce.product.ProductDTO;
 import com.modulith.ecommerce.product.ProductModuleAPI;
+import com.modulith.ecommerce.product.ProductSearchDTO;
+import com.modulith.ecommerce.product.ProductSummaryDTO;
+import com.modulith.ecommerce.product.StockAdjustmentDTO;
+import com.modulith.ecommerce.product.StockAdjustmentResultDTO;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.modulith.events.ApplicationModuleListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -26,18 +38,91 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 @Slf4j
 public class ProductService implements ProductModuleAPI {
+    private static final int MAX_STOCK_BUCKETS = 64;
+
+    private static final int MAX_STOCK_ADJUSTMENTS = 50_000;
+
     private final ProductRepository repository;
 
+    private final ProductStockRepository stockRepository;
+
+    private final ProductSearchRepository searchRepository;
+
+    private final ProductSummaryRepository summaryRepository;
+
+    private final ProductCatalogCache catalogCache;
+
+    private final StockReservationService reservationService;
+
+    private final ProductVersionStamps versionStamps;
+
+    private final StockWriter stockWriter;
+
     public ProductDTO getProduct(Long id) {
         return repository.findById(id)
-                .map(ProductDTO::fromEntity)
+                .map(product -> ProductDTO.fromEntity(product, stockRepository.effectiveStock(product)))
                 .orElseThrow(() -> new ResourceNotFoundException("Product", id));
     }
 
     public List<ProductDTO> getAllProducts(Pageable pageable) {
-        return repository.findAll(pageable)
-                .map(ProductDTO::fromEntity)
-                .getContent();
+        return toDTOs(repository.findAll(pageable).getContent());
+    }
+
+    /**
+     * Last known version of a product, answered from memory (null when unknown)
+     */
+    public ProductVersionStamps.Stamp findProductStamp(Long id) {
+        return versionStamps.findProduct(id);
+    }
+
+    /**
+     * Last known version of a product page, answered from memory (null when unknown or stale)
+     */
+    public ProductVersionStamps.Stamp findProductsStamp(Pageable pageable) {
+        return versionStamps.findPage(pageable.toString());
+    }
+
+    public ProductVersionStamps.Versioned<ProductDTO> getVersionedProduct(Long id) {
+        long version = versionStamps.currentVersion();
+        Product product = getProductById(id);
+        int stock = stockRepository.effectiveStock(product);
+
+        ProductVersionStamps.Stamp stamp = ProductVersionStamps.stampOf(product, stock);
+        versionStamps.putProduct(id, stamp, version);
+        return new ProductVersionStamps.Versioned<>(ProductDTO.fromEntity(product, stock), stamp);
+    }
+
+    public ProductVersionStamps.Versioned<List<ProductDTO>> getVersionedProducts(Pageable pageable) {
+        long version = versionStamps.currentVersion();
+        List<Product> products = repository.findAll(pageable).getContent();
+        Map<Long, Integer> stock = stockRepository.effectiveStock(products);
+
+        List<ProductDTO> items = products.stream()
+                .map(product -> ProductDTO.fromEntity(product, stock.get(product.getId())))
+                .toList();
+        ProductVersionStamps.Stamp stamp = ProductVersionStamps.stampOf(products.stream()
+                .map(product -> ProductVersionStamps.stampOf(product, stock.get(product.getId())))
+                .toList());
+        versionStamps.putPage(pageable.toString(), stamp, version);
+        return new ProductVersionStamps.Versioned<>(items, stamp);
+    }
+
+    public CursorPage<ProductDTO> scrollProducts(String after, Sort sort, int size) {
+        Window<Product> window = repository.findAllBy(
+                ScrollCursor.decode(after, Product.class, sort), sort, ScrollCursor.limit(size));
+        return CursorPage.of(window, toDTOs(window.getContent()));
+    }
+
+    public List<ProductDTO> searchProducts(ProductSearchDTO criteria, int page, int size) {
+        if (page < 0) {
+            throw new ValidationException("page", String.valueOf(page), "cannot be negative");
+        }
+        Limit limit = ScrollCursor.limit(size);
+        if (criteria.minPrice() != null && criteria.maxPrice() != null
+                && criteria.minPrice().compareTo(criteria.maxPrice()) > 0) {
+            throw new ValidationException("minPrice", criteria.minPrice().toPlainString(), "cannot be greater than maxPrice");
+        }
+        return searchRepository.search(criteria, page, limit.max());
     }
 
     public ProductDTO saveProduct(CreateProductDTO productDTO) {
@@ -48,11 +133,15 @@ public class ProductService implements ProductModuleAPI {
                 productDTO.priceAmount(),
                 productDTO.stock(),
                 LocalDateTime.now(),
-                null
+                null,
+                0
         );
-        return ProductDTO.fromEntity(repository.save(product));
+        ProductDTO saved = ProductDTO.fromEntity(repository.save(product));
+        catalogCache.invalidate(saved.id());
+        return saved;
     }
 
+    @Transactional
     public ProductDTO updateProduct(Long id, CreateProductDTO productDTO) {
         Product existingProduct = repository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", id));
@@ -63,15 +152,20 @@ public class ProductService implements ProductModuleAPI {
                 productDTO.priceAmount(),
                 productDTO.stock(),
                 existingProduct.getCreatedAt(),
-                LocalDateTime.now()
+                LocalDateTime.now(),
+                existingProduct.getStockBuckets()
         );
-        return ProductDTO.fromEntity(repository.save(updatedProduct));
+        ProductDTO saved = saveWithStock(updatedProduct);
+        catalogCache.invalidate(id);
+        return saved;
     }
 
     public void deleteProduct(Long id) {
         repository.delete(getProductById(id));
+        catalogCache.invalidate(id);
     }
 
+    @Transactional
     public ProductDTO updateProductStock(Long id, int newStock) {
         validateStock(newStock);
 
@@ -85,33 +179,121 @@ public class ProductService implements ProductModuleAPI {
                 existingProduct.getPriceAmount(),
                 newStock,
                 existingProduct.getCreatedAt(),
-                LocalDateTime.now()
+                LocalDateTime.now(),
+                existingProduct.getStockBuckets()
         );
-        return ProductDTO.fromEntity(repository.save(updatedProduct));
+        ProductDTO saved = saveWithStock(updatedProduct);
+        catalogCache.invalidate(id);
+        return saved;
     }
 
+    /**
+     * Enables sharded stock for a hot product, spreading its stock over the given number of bucket rows.
+     * Zero buckets moves the stock back into the product row.
+     */
+    @Transactional
+    public ProductDTO updateStockBuckets(Long id, int buckets) {
+        if (buckets < 0 || buckets > MAX_STOCK_BUCKETS) {
+            throw new ValidationException("buckets", String.valueOf(buckets), "must be between 0 and " + MAX_STOCK_BUCKETS);
+        }
+        Product product = getProductById(id);
 
-    private Product updateProductStock(Product product, int newStock) {
-        validateStock(newStock);
+        int stock = stockRepository.setStock(id, null, buckets);
+        catalogCache.invalidate(id);
 
-        Product updatedProduct = new Product(
-                product.getId(),
-                product.getName(),
-                product.getDescription(),
-                product.getPriceAmount(),
-                newStock,
-                product.getCreatedAt(),
-                LocalDateTime.now()
-        );
-        return repository.save(updatedProduct);
+        log.info("Stock of product {} now spread over {} buckets (total: {})", id, buckets, stock);
+        return ProductDTO.fromEntity(product, stock);
+    }
+
+    /**
+     * Applies a batch of stock corrections in one transaction. The whole request is rejected when an
+     * entry is invalid; entries for missing products or that would make stock negative are reported
+     * per item and do not roll back the others.
+     */
+    @Transactional
+    public StockAdjustmentResultDTO adjustStock(List<StockAdjustmentDTO> adjustments) {
+        validateStockAdjustments(adjustments);
+
+        Map<Long, Integer> values = new HashMap<>();
+        Set<Long> absolute = new HashSet<>();
+        adjustments.forEach(adjustment -> {
+            values.put(adjustment.id(), adjustment.stock() != null ? adjustment.stock() : adjustment.delta());
+            if (adjustment.stock() != null) {
+                absolute.add(adjustment.id());
+            }
+        });
+
+        List<Long> notUpdated = stockRepository.adjustStock(values, absolute);
+
+        // rows left untouched are missing, sharded (stock lives in buckets) or short of stock
+        Map<Long, StockAdjustmentResultDTO.Status> failures = new HashMap<>();
+        Map<Long, Integer> bucketCounts = stockRepository.findBucketCounts(notUpdated);
+        for (Long productId : notUpdated) {
+            Integer buckets = bucketCounts.get(productId);
+            int value = values.get(productId);
+            if (buckets == null) {
+                failures.put(productId, StockAdjustmentResultDTO.Status.NOT_FOUND);
+            } else if (buckets > 0 && absolute.contains(productId)) {
+                stockRepository.setStock(productId, value, buckets);
+            } else if (buckets > 0 && value >= 0) {
+                // added to a bucket like the negative deltas are taken from them, the hot row stays untouched
+                if (!stockRepository.incrementBuckets(productId, value, buckets)) {
+                    failures.put(productId, StockAdjustmentResultDTO.Status.NOT_FOUND);
+                }
+            } else if (buckets == 0 || !stockRepository.decrementBuckets(productId, -value, buckets)) {
+                failures.put(productId, StockAdjustmentResultDTO.Status.INSUFFICIENT_STOCK);
+            }
+        }
+
+        Set<Long> updatedIds = new HashSet<>(values.keySet());
+        updatedIds.removeAll(failures.keySet());
+        catalogCache.invalidateAll(updatedIds);
+
+        Map<Long, Integer> stock = summaryRepository.findAllByIds(updatedIds).stream()
+                .collect(Collectors.toMap(ProductSummaryDTO::id, ProductSummaryDTO::stock));
+
+        List<StockAdjustmentResultDTO.Item> items = adjustments.stream()
+                .map(adjustment -> failures.containsKey(adjustment.id())
+                        ? new StockAdjustmentResultDTO.Item(adjustment.id(), failures.get(adjustment.id()), null)
+                        : new StockAdjustmentResultDTO.Item(adjustment.id(), StockAdjustmentResultDTO.Status.UPDATED,
+                                stock.get(adjustment.id())))
+                .toList();
+
+        log.info("Batch stock adjustment: {} updated, {} failed", updatedIds.size(), failures.size());
+        return new StockAdjustmentResultDTO(updatedIds.size(), failures.size(), items);
+    }
+
+    // Sharded products keep their stock in buckets, the absolute value is redistributed after the row is written
+    private ProductDTO saveWithStock(Product product) {
+        Product saved = repository.saveAndFlush(product);
+        if (saved.getStockBuckets() > 0) {
+            stockRepository.setStock(saved.getId(), product.getStock(), saved.getStockBuckets());
+        }
+        return ProductDTO.fromEntity(saved, product.getStock());
+    }
+
+    private List<ProductDTO> toDTOs(List<Product> products) {
+        Map<Long, Integer> stock = stockRepository.effectiveStock(products);
+        return products.stream()
+                .map(product -> ProductDTO.fromEntity(product, stock.get(product.getId())))
+                .toList();
     }
 
 
     @Override
     public List<ProductDTO> findAllProductsByIds(Set<Long> productIds) {
-        return repository.findAllByIdIn(productIds).stream()
-                .map(ProductDTO::fromEntity)
-                .toList();
+        return toDTOs(repository.findAllByIdIn(productIds));
+    }
+
+    @Override
+    public List<ProductSummaryDTO> findProductSummariesByIds(Set<Long> productIds) {
+        // Served from the catalog cache, only the misses go to the database
+        return catalogCache.getAll(productIds, summaryRepository::findAllByIds);
+    }
+
+    @Override
+    public List<ProductSummaryDTO> loadProductSummariesByIds(Set<Long> productIds) {
+        return summaryRepository.findAllByIds(productIds);
     }
 
     @Override
@@ -122,8 +304,9 @@ public class ProductService implements ProductModuleAPI {
             throw new ResourceNotFoundException("Product", productId);
         }
 
-        if (product.get().getStock() < requiredQuantity) {
-            throw new InsufficientStockException(product.get().getName(), requiredQuantity, product.get().getStock());
+        int stock = stockRepository.effectiveStock(product.get());
+        if (stock < requiredQuantity) {
+            throw new InsufficientStockException(product.get().getName(), requiredQuantity, stock);
         }
 
     }
@@ -133,19 +316,42 @@ public class ProductService implements ProductModuleAPI {
         // receive to map of productId -> requiredQuantity to avoid multiple DB calls (n+1 problem)
 
         List<Product> products = repository.findAllByIdIn(productQuantities.keySet());
+        Map<Long, Integer> stock = stockRepository.effectiveStock(products);
 
         // fails in verify stock to avoid partial updates
         products.forEach(product -> {
             int requiredQuantity = productQuantities.get(product.getId());
-            if (product.getStock() < requiredQuantity) {
+            int available = stock.get(product.getId());
+            if (available < requiredQuantity) {
                 log.error("Product {} has stock less than required quantity", product.getId());
-                throw new InsufficientStockException(product.getName(), requiredQuantity, product.getStock());
+                throw new InsufficientStockException(product.getName(), requiredQuantity, available);
             }
         });
 
     }
 
+    @Override
+    public void reserveStock(Long userId, Long productId, int quantity) {
+        reservationService.reserve(userId, productId, quantity);
+    }
+
+    @Override
+    public void reserveStocks(Long userId, Map<Long, Integer> productQuantities) {
+        reservationService.reserveAll(userId, productQuantities);
+    }
+
+    @Override
+    public void releaseStock(Long userId, Set<Long> productIds) {
+        reservationService.consume(userId, productIds);
+    }
+
+    @Override
+    public void validateProductsAvailable(Long userId, Map<Long, Integer> productQuantities) {
+        reservationService.validateAvailable(userId, productQuantities);
+    }
+
     @EventListener
+    @Transactional
     public void onCheckoutEvent(CheckoutEvent event) {
         log.info("Processing stock update for checkout. Cart: {}, User: {}",
                 event.cart(), event.user());
@@ -153,30 +359,26 @@ public class ProductService implements ProductModuleAPI {
         Map<Long, Integer> productQuantities = event.items().stream()
                 .collect(Collectors.toMap(
                         CheckoutEvent.CheckoutItem::product,
-                        CheckoutEvent.CheckoutItem::quantity
+                        CheckoutEvent.CheckoutItem::quantity,
+                        Integer::sum
                 ));
 
-        List<Product> products = repository.findAllByIdIn(productQuantities.keySet());
+        // Conditional decrement in a single batch: the stock check happens in the database,
+        // any row left untouched fails the whole checkout and rolls back the batch
+        List<Long> notUpdated = decrementShardedStock(
+                stockRepository.decrementStock(productQuantities), productQuantities);
 
-        products.forEach(product -> {
-            int requiredQuantity = productQuantities.get(product.getId());
-            if (product.getStock() < requiredQuantity) {
-                throw new InsufficientStockException(product.getName(), requiredQuantity, product.getStock());
-            }
-        });
+        if (!notUpdated.isEmpty()) {
+            Long productId = notUpdated.getFirst();
+            log.error("Product {} has stock less than required quantity", productId);
+            throw insufficientStock(productId, productQuantities.get(productId));
+        }
 
-        List<Product> updatedProducts = products.stream().map(product -> {
-            int requiredQuantity = productQuantities.get(product.getId());
-            int newStock = product.getStock() - requiredQuantity;
-            log.info("Stock updated for product {}: {} -> {} (Decremented by: {})",
-                    product.getId(), product.getStock(), newStock, requiredQuantity);
-            return updateProductStock(product, newStock);
-        }).toList();
+        reservationService.consume(event.user(), productQuantities.keySet());
+        catalogCache.invalidateAll(productQuantities.keySet());
 
         log.info("Stock updated successfully for {} products in cart {}",
                 productQuantities.size(), event.cart());
-        repository.saveAll(updatedProducts);
-
     }
 
     @ApplicationModuleListener
@@ -184,36 +386,97 @@ public class ProductService implements ProductModuleAPI {
         log.info("Processing stock restoration for cancelled order. Order: {}, User: {}",
                 event.orderId(), event.userId());
 
-        Set<Long> productIds = event.items().stream().map(OrderCancelledEvent.CancelledItem::productId).collect(Collectors.toSet());
-
-        List<Product> products = repository.findAllByIdIn(productIds);
-
-        for (OrderCancelledEvent.CancelledItem item : event.items()) {
-            Product product = products.stream()
-                    .filter(p -> p.getId().equals(item.productId()))
-                    .findFirst()
-                    .orElseThrow(() -> new ResourceNotFoundException("Product", item.productId()));
-
-            int oldStock = product.getStock();
-            int newStock = product.getStock() + item.quantity();
+        Map<Long, Integer> productQuantities = event.items().stream()
+                .collect(Collectors.toMap(
+                        OrderCancelledEvent.CancelledItem::productId,
+                        OrderCancelledEvent.CancelledItem::quantity,
+                        Integer::sum
+                ));
 
-            updateProductStock(product, newStock);
+        // delivery is at least once (restart republishing, EventPublicationRetryWorker): the restoration
+        // marker is written with the increments, in this transaction or in the stock writer's batch
+        List<Long> notUpdated;
+        if (stockWriter.isEnabled()) {
+            StockWriter.Result result = stockWriter.write(productQuantities, event.orderId());
+            if (result.alreadyApplied()) {
+                log.info("Stock of order {} was already restored, skipping redelivered event", event.orderId());
+                return;
+            }
+            notUpdated = result.notUpdated();
+        } else {
+            if (!stockRepository.markStockRestored(event.orderId())) {
+                log.info("Stock of order {} was already restored, skipping redelivered event", event.orderId());
+                return;
+            }
+            notUpdated = stockRepository.incrementStock(productQuantities);
+        }
 
-            log.info("Stock restored for product {}: {} -> {} (Incremented by: {})",
-                    product.getId(), oldStock, newStock, item.quantity());
+        if (!notUpdated.isEmpty()) {
+            throw new ResourceNotFoundException("Product", notUpdated.getFirst());
         }
 
+        catalogCache.invalidateAll(productQuantities.keySet());
+
         log.info("Stock restored successfully for {} products in order {}",
                 event.items().size(), event.orderId());
 
     }
 
+    // Products whose row was not decremented may keep their stock in buckets (hot SKUs)
+    private List<Long> decrementShardedStock(List<Long> notUpdated, Map<Long, Integer> productQuantities) {
+        if (notUpdated.isEmpty()) {
+            return notUpdated;
+        }
+        Map<Long, Integer> bucketCounts = stockRepository.findBucketCounts(notUpdated);
+        return notUpdated.stream()
+                .filter(productId -> {
+                    int buckets = bucketCounts.getOrDefault(productId, 0);
+                    return buckets == 0
+                            || !stockRepository.decrementBuckets(productId, productQuantities.get(productId), buckets);
+                })
+                .toList();
+    }
+
+    // Only runs on the failure path, to report the current stock of the rejected product
+    private RuntimeException insufficientStock(Long productId, int requiredQuantity) {
+        return repository.findById(productId)
+                .<RuntimeException>map(product -> new InsufficientStockException(
+                        product.getName(), requiredQuantity, stockRepository.effectiveStock(product)))
+                .orElseGet(() -> new ResourceNotFoundException("Product", productId));
+    }
+
     private void validateStock(int stock) {
         if (stock < 0) {
             throw new ValidationException("stock", String.valueOf(stock), "cannot be negative");
         }
     }
 
+    private void validateStockAdjustments(List<StockAdjustmentDTO> adjustments) {
+        if (adjustments == null || adjustments.isEmpty()) {
+            throw new ValidationException("adjustments", "[]", "cannot be empty");
+        }
+        if (adjustments.size() > MAX_STOCK_ADJUSTMENTS) {
+            throw new ValidationException("adjustments", String.valueOf(adjustments.size()),
+                    "cannot have more than " + MAX_STOCK_ADJUSTMENTS + " entries");
+        }
+
+        Set<Long> ids = new HashSet<>();
+        for (StockAdjustmentDTO adjustment : adjustments) {
+            if (adjustment.id() == null) {
+                throw new ValidationException("id", "null", "is required");
+            }
+            if (!ids.add(adjustment.id())) {
+                throw new ValidationException("id", String.valueOf(adjustment.id()), "appears more than once");
+            }
+            if ((adjustment.stock() == null) == (adjustment.delta() == null)) {
+                throw new ValidationException("id", String.valueOf(adjustment.id()), "requires exactly one of stock or delta");
+            }
+            if (adjustment.stock() != null) {
+                validateStock(adjustment.stock());
+            }
+        }
+    }
+
     private Product getProductById(Long product) {
         return repository.findById(product)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", product));
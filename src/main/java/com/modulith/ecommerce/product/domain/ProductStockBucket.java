@@ -0,0 +1,32 @@
+package com.modulith.ecommerce.product.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Slice of the stock of a hot product. When a product has stock buckets its effective stock
+ * is products.stock plus the sum of its buckets, and checkout decrements hit a random bucket
+ * instead of serializing on the product row. Rows are written through ProductStockRepository.
+ */
+@Entity
+@AllArgsConstructor
+@Table(name = "product_stock_buckets",
+        uniqueConstraints = @UniqueConstraint(name = "uk_product_stock_buckets_product_bucket", columnNames = {"product_id", "bucket"}))
+@Getter
+@NoArgsConstructor(force = true)
+public class ProductStockBucket {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private final Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private final Long productId;
+
+    @Column(name = "bucket", nullable = false)
+    private final int bucket;
+
+    @Column(name = "stock", nullable = false)
+    private final int stock;
+}
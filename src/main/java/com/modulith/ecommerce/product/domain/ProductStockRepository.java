@@ -0,0 +1,373 @@
+package com.modulith.ecommerce.product.domain;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Set-based stock updates executed as a single JDBC batch.
+ * The conditions are evaluated by the database, so concurrent updates of the same
+ * product never lose writes and never read stock into Java first.
+ */
+@Repository
+@AllArgsConstructor
+public class ProductStockRepository {
+
+    // effective stock of a products row, including the buckets of sharded products
+    static final String EFFECTIVE_STOCK_SQL = "(stock + case when stock_buckets > 0 then coalesce("
+            + "(select sum(b.stock) from product_stock_buckets b where b.product_id = products.id), 0) else 0 end)";
+
+    // sharded products never match: every change of their stock goes to the buckets, not the hot row
+    private static final String DECREMENT_SQL =
+            "update products set stock = stock - ?, updated_at = ? where id = ? and stock_buckets = 0 and stock >= ?";
+
+    private static final String INCREMENT_SQL =
+            "update products set stock = stock + ?, updated_at = ? where id = ? and stock_buckets = 0";
+
+    // only products that are not sharded, deltas never go below zero
+    private static final String ADJUST_SQL =
+            "update products set stock = case when ? then ? else stock + ? end, updated_at = ?"
+                    + " where id = ? and stock_buckets = 0 and (? or stock + ? >= 0)";
+
+    private static final int ADJUST_BATCH_SIZE = 1000;
+
+    private static final String DELTA_SQL =
+            "update products set stock = stock + ?, updated_at = ? where id = ? and stock_buckets = 0 and stock + ? >= 0";
+
+    private static final String BUCKET_DECREMENT_SQL =
+            "update product_stock_buckets set stock = stock - ? where product_id = ? and bucket = ? and stock >= ?";
+
+    private static final String BUCKET_INCREMENT_SQL =
+            "update product_stock_buckets set stock = stock + ? where product_id = ? and bucket = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Decrements stock of every product only if it has enough stock available.
+     * Sharded products are left to decrementBuckets.
+     * @param productQuantities Map of product IDs and quantities to decrement
+     * @return IDs of the products whose row was not updated (missing, sharded or not enough stock)
+     */
+    public List<Long> decrementStock(Map<Long, Integer> productQuantities) {
+        if (productQuantities.isEmpty()) {
+            return List.of();
+        }
+
+        // sorted by id so concurrent batches always lock rows in the same order
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(new TreeMap<>(productQuantities).entrySet());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        int[] updateCounts = jdbcTemplate.batchUpdate(DECREMENT_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setTimestamp(2, now);
+            ps.setLong(3, entry.getKey());
+            ps.setInt(4, entry.getValue());
+        })[0];
+
+        return notUpdated(entries, updateCounts);
+    }
+
+    /**
+     * Increments stock of every product, into a random bucket for sharded products.
+     * @param productQuantities Map of product IDs and quantities to increment
+     * @return IDs of the products that were not updated (missing)
+     */
+    public List<Long> incrementStock(Map<Long, Integer> productQuantities) {
+        if (productQuantities.isEmpty()) {
+            return List.of();
+        }
+
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(new TreeMap<>(productQuantities).entrySet());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        int[] updateCounts = jdbcTemplate.batchUpdate(INCREMENT_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setTimestamp(2, now);
+            ps.setLong(3, entry.getKey());
+        })[0];
+
+        List<Long> notUpdated = notUpdated(entries, updateCounts);
+        if (notUpdated.isEmpty()) {
+            return notUpdated;
+        }
+        Map<Long, Integer> bucketCounts = findBucketCounts(notUpdated);
+        return notUpdated.stream()
+                .filter(productId -> {
+                    int buckets = bucketCounts.getOrDefault(productId, 0);
+                    return buckets == 0 || !incrementBuckets(productId, productQuantities.get(productId), buckets);
+                })
+                .toList();
+    }
+
+    /**
+     * Applies absolute stock values or deltas to the product rows, in id order and in JDBC batches.
+     * @param values Map of product IDs and new stock (absolute) or quantity to add (delta)
+     * @param absolute IDs whose value is an absolute stock, the others are deltas
+     * @return IDs of the products whose row was not updated (missing, sharded, or a delta
+     *         that would make the stock negative)
+     */
+    public List<Long> adjustStock(Map<Long, Integer> values, Set<Long> absolute) {
+        if (values.isEmpty()) {
+            return List.of();
+        }
+
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(new TreeMap<>(values).entrySet());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        int[][] updateCounts = jdbcTemplate.batchUpdate(ADJUST_SQL, entries, ADJUST_BATCH_SIZE, (ps, entry) -> {
+            boolean isAbsolute = absolute.contains(entry.getKey());
+            ps.setBoolean(1, isAbsolute);
+            ps.setInt(2, entry.getValue());
+            ps.setInt(3, entry.getValue());
+            ps.setTimestamp(4, now);
+            ps.setLong(5, entry.getKey());
+            ps.setBoolean(6, isAbsolute);
+            ps.setInt(7, entry.getValue());
+        });
+
+        return notUpdated(entries, Arrays.stream(updateCounts).flatMapToInt(Arrays::stream).toArray());
+    }
+
+    /**
+     * Serializes the reservations of the products across instances until the current transaction ends.
+     * Advisory locks are taken in id order, so two carts never wait on each other.
+     */
+    public void lockReservations(Collection<Long> productIds) {
+        jdbcTemplate.query(
+                "select pg_advisory_xact_lock(id) from (select id from unnest(?) as t(id) order by id) ids",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", productIds.toArray())),
+                rs -> {});
+    }
+
+    /**
+     * @return Quantity of each product held in stock_reservations by users other than the given one
+     */
+    public Map<Long, Integer> findReservedExcluding(Collection<Long> productIds, Long userId, LocalDateTime now) {
+        Map<Long, Integer> reserved = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return reserved;
+        }
+        jdbcTemplate.query(
+                "select product_id, sum(quantity) as reserved from stock_reservations"
+                        + " where product_id = any(?) and user_id <> ? and expires_at > ? group by product_id",
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", productIds.toArray()));
+                    ps.setLong(2, userId);
+                    ps.setTimestamp(3, Timestamp.valueOf(now));
+                },
+                rs -> {
+                    reserved.put(rs.getLong("product_id"), rs.getInt("reserved"));
+                });
+        return reserved;
+    }
+
+    /**
+     * Records that the stock of a cancelled order was restored, in the current transaction.
+     * @return false if it was already recorded (the event is a redelivery)
+     */
+    public boolean markStockRestored(Long orderId) {
+        return jdbcTemplate.update(
+                "insert into order_stock_restorations (order_id, restored_at) values (?, ?) on conflict do nothing",
+                orderId, Timestamp.valueOf(LocalDateTime.now())) == 1;
+    }
+
+    /**
+     * Adds stock deltas to the product rows in one JDBC batch, statements run in the given order
+     * (callers pass them sorted by id). A delta that would make the stock negative is not applied.
+     * @param productIds Product ID of every statement
+     * @param deltas Quantity to add (negative to decrement) of every statement
+     * @return Update count of every statement, 0 when the row was not updated
+     */
+    public int[] applyDeltas(long[] productIds, int[] deltas) {
+        if (productIds.length == 0) {
+            return new int[0];
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.batchUpdate(DELTA_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setInt(1, deltas[i]);
+                ps.setTimestamp(2, now);
+                ps.setLong(3, productIds[i]);
+                ps.setInt(4, deltas[i]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return productIds.length;
+            }
+        });
+    }
+
+    /**
+     * Decrements the stock of a sharded product from its buckets, without touching the product row.
+     * A random bucket is tried first, then the others in order; when no single bucket has enough,
+     * the product row and the buckets are locked and drained together (buckets first), so every
+     * quantity within the effective stock succeeds.
+     * @return true if the quantity was decremented, false if the product has not enough effective stock
+     */
+    public boolean decrementBuckets(Long productId, int quantity, int buckets) {
+        int start = ThreadLocalRandom.current().nextInt(buckets);
+        for (int i = 0; i < buckets; i++) {
+            int bucket = (start + i) % buckets;
+            if (jdbcTemplate.update(BUCKET_DECREMENT_SQL, quantity, productId, bucket, quantity) == 1) {
+                return true;
+            }
+        }
+
+        // same lock order as setStock: product row, then its buckets
+        Integer rowStock = jdbcTemplate.queryForObject(
+                "select stock from products where id = ? for update", Integer.class, productId);
+        List<int[]> rows = jdbcTemplate.query(
+                "select bucket, stock from product_stock_buckets where product_id = ? order by bucket for update",
+                (rs, rowNum) -> new int[]{rs.getInt("bucket"), rs.getInt("stock")},
+                productId);
+
+        if (rowStock + rows.stream().mapToInt(row -> row[1]).sum() < quantity) {
+            return false;
+        }
+
+        int remaining = quantity;
+        for (int[] row : rows) {
+            int taken = Math.min(row[1], remaining);
+            if (taken > 0) {
+                jdbcTemplate.update(BUCKET_DECREMENT_SQL, taken, productId, row[0], taken);
+                remaining -= taken;
+            }
+        }
+        if (remaining > 0) {
+            jdbcTemplate.update("update products set stock = stock - ?, updated_at = ? where id = ?",
+                    remaining, Timestamp.valueOf(LocalDateTime.now()), productId);
+        }
+        return true;
+    }
+
+    /**
+     * Adds stock to a random bucket of a sharded product, without touching the product row.
+     * @return false if the product has no such bucket (it was unsharded meanwhile)
+     */
+    public boolean incrementBuckets(Long productId, int quantity, int buckets) {
+        int bucket = ThreadLocalRandom.current().nextInt(buckets);
+        return jdbcTemplate.update(BUCKET_INCREMENT_SQL, quantity, productId, bucket) == 1;
+    }
+
+    /**
+     * @return Number of stock buckets of each product, 0 for products that are not sharded
+     */
+    public Map<Long, Integer> findBucketCounts(Collection<Long> productIds) {
+        Map<Long, Integer> counts = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return counts;
+        }
+        jdbcTemplate.query(
+                "select id, stock_buckets from products where id = any(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", productIds.toArray())),
+                rs -> {
+                    counts.put(rs.getLong("id"), rs.getInt("stock_buckets"));
+                });
+        return counts;
+    }
+
+    /**
+     * @return Sum of the bucket stock of each product that has buckets
+     */
+    public Map<Long, Integer> sumBuckets(Collection<Long> productIds) {
+        Map<Long, Integer> totals = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return totals;
+        }
+        jdbcTemplate.query(
+                "select product_id, sum(stock) as stock from product_stock_buckets where product_id = any(?) group by product_id",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", productIds.toArray())),
+                rs -> {
+                    totals.put(rs.getLong("product_id"), rs.getInt("stock"));
+                });
+        return totals;
+    }
+
+    /**
+     * Effective stock of the products: the stock column plus the bucket stock of sharded products.
+     * Only sharded products cost an extra query.
+     */
+    public Map<Long, Integer> effectiveStock(Collection<Product> products) {
+        List<Long> shardedIds = products.stream()
+                .filter(product -> product.getStockBuckets() > 0)
+                .map(Product::getId)
+                .toList();
+        Map<Long, Integer> bucketTotals = sumBuckets(shardedIds);
+
+        Map<Long, Integer> stock = new HashMap<>();
+        products.forEach(product -> stock.put(product.getId(),
+                product.getStock() + bucketTotals.getOrDefault(product.getId(), 0)));
+        return stock;
+    }
+
+    public int effectiveStock(Product product) {
+        return effectiveStock(List.of(product)).get(product.getId());
+    }
+
+    /**
+     * Sets the total stock of a product spreading it over the given number of buckets
+     * (or back into the product row when buckets is 0). Must run in a transaction.
+     * @return The total stock that was redistributed
+     */
+    public int setStock(Long productId, Integer total, int buckets) {
+        // lock the product row and its buckets so concurrent decrements wait for the redistribution
+        Integer current = jdbcTemplate.queryForObject(
+                "select stock from products where id = ? for update", Integer.class, productId);
+        int bucketStock = jdbcTemplate.queryForList(
+                "select stock from product_stock_buckets where product_id = ? for update", Integer.class, productId)
+                .stream().mapToInt(Integer::intValue).sum();
+        int newTotal = total != null ? total : current + bucketStock;
+
+        jdbcTemplate.update("delete from product_stock_buckets where product_id = ?", productId);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        if (buckets == 0) {
+            jdbcTemplate.update("update products set stock = ?, stock_buckets = 0, updated_at = ? where id = ?",
+                    newTotal, now, productId);
+            return newTotal;
+        }
+
+        List<int[]> rows = new ArrayList<>(buckets);
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            rows.add(new int[]{bucket, newTotal / buckets + (bucket < newTotal % buckets ? 1 : 0)});
+        }
+        jdbcTemplate.batchUpdate(
+                "insert into product_stock_buckets (product_id, bucket, stock) values (?, ?, ?)",
+                rows, rows.size(), (ps, row) -> {
+                    ps.setLong(1, productId);
+                    ps.setInt(2, row[0]);
+                    ps.setInt(3, row[1]);
+                });
+        jdbcTemplate.update("update products set stock = 0, stock_buckets = ?, updated_at = ? where id = ?",
+                buckets, now, productId);
+        return newTotal;
+    }
+
+    private List<Long> notUpdated(List<Map.Entry<Long, Integer>> entries, int[] updateCounts) {
+        List<Long> notUpdated = new ArrayList<>();
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] == 0) {
+                notUpdated.add(entries.get(i).getKey());
+            }
+        }
+        return notUpdated;
+    }
+}
@@ -0,0 +1,42 @@
+package com.modulith.ecommerce.product.domain;
+
+import com.modulith.ecommerce.product.ProductSummaryDTO;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Lean read path for product summaries: selects only the needed columns into records, with no
+ * persistence context involved. The ids are bound as one array parameter, so the statement text
+ * is the same for any number of ids and the driver prepares it once.
+ */
+@Repository
+@AllArgsConstructor
+public class ProductSummaryRepository {
+
+    private static final String FIND_BY_IDS_SQL =
+            "select id, name, price_amount, " + ProductStockRepository.EFFECTIVE_STOCK_SQL + " as stock"
+                    + " from products where id = any(?)";
+
+    private static final RowMapper<ProductSummaryDTO> SUMMARY_MAPPER = (rs, rowNum) -> new ProductSummaryDTO(
+            rs.getLong("id"),
+            rs.getString("name"),
+            rs.getBigDecimal("price_amount"),
+            rs.getInt("stock"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<ProductSummaryDTO> findAllByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(
+                FIND_BY_IDS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())),
+                SUMMARY_MAPPER);
+    }
+}
@@ -0,0 +1,133 @@
+package com.modulith.ecommerce.product.domain;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Last known ETag / Last-Modified of products and product pages, used to answer conditional
+ * GETs with 304 without touching the database. Stamps are dropped whenever the catalog cache
+ * invalidates a product, and page stamps are only valid while no product changed since they were taken.
+ * Like the catalog cache, stamps expire after the cache TTL so writes made by other instances are picked up.
+ */
+@Component
+public class ProductVersionStamps {
+
+    private static final int MAX_PAGE_STAMPS = 1000;
+
+    private final long ttlNanos;
+
+    private final Map<Long, StoredStamp> productStamps;
+
+    private final Map<String, StoredStamp> pageStamps;
+
+    // bumped on every product write, a stamp taken before the bump is never stored
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    public ProductVersionStamps(
+            @Value("${app.product.cache.max-size:10000}") int maxSize,
+            @Value("${app.product.cache.ttl:PT5M}") Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+        this.productStamps = boundedMap(maxSize);
+        this.pageStamps = boundedMap(MAX_PAGE_STAMPS);
+    }
+
+    public record Stamp(String etag, long lastModified) {}
+
+    public record Versioned<T>(T body, Stamp stamp) {}
+
+    private record StoredStamp(Stamp stamp, long catalogVersion, long expiresAt) {
+        boolean isValid(long currentVersion, boolean checkVersion) {
+            return System.nanoTime() - expiresAt < 0 && (!checkVersion || catalogVersion == currentVersion);
+        }
+    }
+
+    public long currentVersion() {
+        return catalogVersion.get();
+    }
+
+    public Stamp findProduct(Long productId) {
+        synchronized (productStamps) {
+            StoredStamp stored = productStamps.get(productId);
+            return stored != null && stored.isValid(catalogVersion.get(), false) ? stored.stamp() : null;
+        }
+    }
+
+    public Stamp findPage(String pageKey) {
+        synchronized (pageStamps) {
+            StoredStamp stored = pageStamps.get(pageKey);
+            return stored != null && stored.isValid(catalogVersion.get(), true) ? stored.stamp() : null;
+        }
+    }
+
+    public void putProduct(Long productId, Stamp stamp, long versionAtLoad) {
+        synchronized (productStamps) {
+            if (catalogVersion.get() == versionAtLoad) {
+                productStamps.put(productId, new StoredStamp(stamp, versionAtLoad, System.nanoTime() + ttlNanos));
+            }
+        }
+    }
+
+    public void putPage(String pageKey, Stamp stamp, long versionAtLoad) {
+        synchronized (pageStamps) {
+            if (catalogVersion.get() == versionAtLoad) {
+                pageStamps.put(pageKey, new StoredStamp(stamp, versionAtLoad, System.nanoTime() + ttlNanos));
+            }
+        }
+    }
+
+    public void invalidate(Collection<Long> productIds) {
+        catalogVersion.incrementAndGet();
+        synchronized (productStamps) {
+            productIds.forEach(productStamps::remove);
+        }
+    }
+
+    /**
+     * Strong ETag of a product representation: id, last modification and stock
+     * (stock held in buckets changes without touching updated_at).
+     */
+    public static Stamp stampOf(Product product, int stock) {
+        long lastModified = lastModified(product);
+        String etag = "\"" + Long.toHexString(product.getId()) + "-" + Long.toHexString(lastModified) + "-" + stock + "\"";
+        return new Stamp(etag, lastModified);
+    }
+
+    /**
+     * ETag of a page: digest of the ETags of its items; Last-Modified is the newest item.
+     */
+    public static Stamp stampOf(List<Stamp> itemStamps) {
+        StringBuilder tags = new StringBuilder();
+        long lastModified = 0;
+        for (Stamp stamp : itemStamps) {
+            tags.append(stamp.etag());
+            lastModified = Math.max(lastModified, stamp.lastModified());
+        }
+        String digest = DigestUtils.md5DigestAsHex(tags.toString().getBytes(StandardCharsets.UTF_8));
+        return new Stamp("\"" + digest + "\"", lastModified);
+    }
+
+    private static long lastModified(Product product) {
+        LocalDateTime modifiedAt = product.getUpdatedAt() != null ? product.getUpdatedAt() : product.getCreatedAt();
+        return modifiedAt == null ? 0 : modifiedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static <K, V> Map<K, V> boundedMap(int maxSize) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+}
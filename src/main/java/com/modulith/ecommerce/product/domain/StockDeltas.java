@@ -0,0 +1,86 @@
+package com.modulith.ecommerce.product.domain;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing map of product id to stock delta on primitive arrays, used to coalesce
+ * the deltas of a stock write batch without boxing. Not thread safe.
+ */
+class StockDeltas {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+
+    private int[] values;
+
+    private int size;
+
+    StockDeltas(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    void add(long productId, int delta) {
+        int slot = slot(keys, productId);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = productId;
+            values[slot] = delta;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        } else {
+            values[slot] += delta;
+        }
+    }
+
+    int get(long productId) {
+        int slot = slot(keys, productId);
+        return keys[slot] == EMPTY ? 0 : values[slot];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return Product ids in ascending order, the order rows are locked in
+     */
+    long[] sortedIds() {
+        long[] ids = new long[size];
+        int i = 0;
+        for (long key : keys) {
+            if (key != EMPTY) {
+                ids[i++] = key;
+            }
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slot(long[] keys, long productId) {
+        int mask = keys.length - 1;
+        int slot = Long.hashCode(productId * 0x9E3779B97F4A7C15L) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != productId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
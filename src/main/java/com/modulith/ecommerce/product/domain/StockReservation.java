@@ -0,0 +1,37 @@
+package com.modulith.ecommerce.product.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Time-limited stock hold of a user for a product while it sits in the cart.
+ * Rows back the in-memory StockReservationStore so holds survive restarts.
+ */
+@Entity
+@AllArgsConstructor
+@Table(name = "stock_reservations",
+        uniqueConstraints = @UniqueConstraint(name = "uk_stock_reservations_product_user", columnNames = {"product_id", "user_id"}),
+        indexes = @Index(name = "idx_stock_reservations_expires_at", columnList = "expires_at"))
+@Getter
+@NoArgsConstructor(force = true)
+public class StockReservation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private final Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private final Long productId;
+
+    @Column(name = "user_id", nullable = false)
+    private final Long userId;
+
+    @Column(name = "quantity", nullable = false)
+    private final int quantity;
+
+    @Column(name = "expires_at", nullable = false)
+    private final LocalDateTime expiresAt;
+}
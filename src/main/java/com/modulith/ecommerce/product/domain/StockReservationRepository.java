@@ -0,0 +1,35 @@
+package com.modulith.ecommerce.product.domain;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into stock_reservations (product_id, user_id, quantity, expires_at)
+            values (:productId, :userId, :quantity, :expiresAt)
+            on conflict (product_id, user_id) do update
+            set quantity = excluded.quantity, expires_at = excluded.expires_at
+            """, nativeQuery = true)
+    void upsert(Long productId, Long userId, int quantity, LocalDateTime expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("delete from StockReservation r where r.userId = :userId and r.productId in :productIds")
+    int deleteByUserIdAndProductIds(Long userId, Collection<Long> productIds);
+
+    @Modifying
+    @Transactional
+    @Query("delete from StockReservation r where r.expiresAt <= :now")
+    int deleteExpired(LocalDateTime now);
+
+    List<StockReservation> findByExpiresAtAfter(LocalDateTime now);
+}
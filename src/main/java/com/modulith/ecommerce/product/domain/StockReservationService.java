@@ -0,0 +1,243 @@
+package com.modulith.ecommerce.product.domain;
+
+import com.modulith.ecommerce.exception.InsufficientStockException;
+import com.modulith.ecommerce.exception.ResourceNotFoundException;
+import com.modulith.ecommerce.exception.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Time-limited stock holds created when items enter the cart and consumed at checkout.
+ * Available-to-sell is the product stock minus the active holds of other users; it is computed
+ * from a plain read of the stock (and stock buckets) and the holds, without locking the product row.
+ * Holds are written to stock_reservations in the caller's transaction. By default availability is
+ * checked against the in-memory store, which only knows the holds of this instance: a hold enters it
+ * right away and is reverted if the transaction rolls back. With shared enabled, for several instances,
+ * availability is read from stock_reservations instead, serialized per product with advisory locks.
+ */
+@Service
+@Slf4j
+public class StockReservationService {
+
+    private final ProductRepository productRepository;
+
+    private final ProductStockRepository stockRepository;
+
+    private final StockReservationRepository reservationRepository;
+
+    private final StockReservationStore store;
+
+    private final Duration ttl;
+
+    private final boolean shared;
+
+    public StockReservationService(
+            ProductRepository productRepository,
+            ProductStockRepository stockRepository,
+            StockReservationRepository reservationRepository,
+            StockReservationStore store,
+            @Value("${app.product.reservation.ttl:PT15M}") Duration ttl,
+            @Value("${app.product.reservation.shared:false}") boolean shared) {
+        this.productRepository = productRepository;
+        this.stockRepository = stockRepository;
+        this.reservationRepository = reservationRepository;
+        this.store = store;
+        this.ttl = ttl;
+        this.shared = shared;
+    }
+
+    /**
+     * Creates or replaces the user's hold on a product.
+     * @throws InsufficientStockException if the stock not held by other users is not enough
+     */
+    @Transactional
+    public void reserve(Long userId, Long productId, int quantity) {
+        validateQuantity(quantity);
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product", productId));
+        int stock = stockRepository.effectiveStock(product);
+
+        long now = System.currentTimeMillis();
+        long expiresAt = now + ttl.toMillis();
+
+        int available;
+        if (shared) {
+            stockRepository.lockReservations(List.of(productId));
+            available = stock - reservedByOthers(List.of(productId), userId, now).getOrDefault(productId, 0);
+        } else {
+            available = hold(productId, userId, quantity, stock, expiresAt, now);
+        }
+        if (quantity > available) {
+            throw new InsufficientStockException(productId, quantity, Math.max(available, 0));
+        }
+
+        reservationRepository.upsert(productId, userId, quantity, toLocalDateTime(expiresAt));
+    }
+
+    /**
+     * Creates or replaces the user's holds on several products. Every product is checked first,
+     * with one read of the stock, so a shortage fails the call before any hold is taken;
+     * if a concurrent reservation still wins a race, the transaction rolls back with the holds it took.
+     * @throws InsufficientStockException for the first product that cannot be served
+     */
+    @Transactional
+    public void reserveAll(Long userId, Map<Long, Integer> productQuantities) {
+        if (productQuantities.isEmpty()) {
+            return;
+        }
+        productQuantities.values().forEach(this::validateQuantity);
+        if (shared) {
+            stockRepository.lockReservations(productQuantities.keySet());
+        }
+        List<Product> products = productRepository.findAllByIdIn(productQuantities.keySet());
+        if (products.size() < productQuantities.size()) {
+            Set<Long> found = products.stream().map(Product::getId).collect(Collectors.toSet());
+            Long missing = productQuantities.keySet().stream().filter(id -> !found.contains(id)).findFirst().orElseThrow();
+            throw new ResourceNotFoundException("Product", missing);
+        }
+        Map<Long, Integer> stock = stockRepository.effectiveStock(products);
+
+        long now = System.currentTimeMillis();
+        long expiresAt = now + ttl.toMillis();
+
+        validateAvailable(products, productQuantities, stock, reservedByOthers(productQuantities.keySet(), userId, now));
+
+        for (Product product : products) {
+            int quantity = productQuantities.get(product.getId());
+            if (!shared) {
+                int available = hold(product.getId(), userId, quantity, stock.get(product.getId()), expiresAt, now);
+                if (quantity > available) {
+                    throw new InsufficientStockException(product.getName(), quantity, Math.max(available, 0));
+                }
+            }
+            reservationRepository.upsert(product.getId(), userId, quantity, toLocalDateTime(expiresAt));
+        }
+    }
+
+    /**
+     * Checks the requested quantities against the stock not held by other users.
+     * @throws InsufficientStockException for the first product that cannot be served
+     */
+    public void validateAvailable(Long userId, Map<Long, Integer> productQuantities) {
+        long now = System.currentTimeMillis();
+        List<Product> products = productRepository.findAllByIdIn(productQuantities.keySet());
+        Map<Long, Integer> stock = stockRepository.effectiveStock(products);
+
+        validateAvailable(products, productQuantities, stock, reservedByOthers(productQuantities.keySet(), userId, now));
+    }
+
+    private void validateAvailable(List<Product> products, Map<Long, Integer> productQuantities,
+                                   Map<Long, Integer> stock, Map<Long, Integer> reserved) {
+        products.forEach(product -> {
+            int requiredQuantity = productQuantities.get(product.getId());
+            int available = stock.get(product.getId()) - reserved.getOrDefault(product.getId(), 0);
+            if (available < requiredQuantity) {
+                throw new InsufficientStockException(product.getName(), requiredQuantity, Math.max(available, 0));
+            }
+        });
+    }
+
+    // holds are always positive, a negative one would raise the stock available to every other user
+    private void validateQuantity(Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new ValidationException("quantity", String.valueOf(quantity), "must be positive");
+        }
+    }
+
+    private Map<Long, Integer> reservedByOthers(Collection<Long> productIds, Long userId, long now) {
+        if (shared) {
+            return stockRepository.findReservedExcluding(productIds, userId, toLocalDateTime(now));
+        }
+        Map<Long, Integer> reserved = new HashMap<>();
+        productIds.forEach(productId -> reserved.put(productId, store.reservedExcluding(productId, userId, now)));
+        return reserved;
+    }
+
+    // Takes the hold in memory right away so concurrent carts see it, and puts back the user's previous
+    // hold if the transaction that writes the row does not commit
+    private int hold(Long productId, Long userId, int quantity, int stock, long expiresAt, long now) {
+        StockReservationStore.Hold previous = store.holdOf(productId, userId);
+        int available = store.tryReserve(productId, userId, quantity, stock, expiresAt, now);
+        if (quantity <= available && TransactionSynchronizationManager.isSynchronizationActive()) {
+            StockReservationStore.Hold taken = new StockReservationStore.Hold(quantity, expiresAt);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        store.revert(productId, userId, taken, previous);
+                    }
+                }
+            });
+        }
+        return available;
+    }
+
+    /**
+     * Consumes the user's holds once their stock has been decremented.
+     * Rows are deleted in the current transaction, the in-memory holds only after it commits.
+     */
+    public void consume(Long userId, Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        reservationRepository.deleteByUserIdAndProductIds(userId, productIds);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    productIds.forEach(productId -> store.remove(productId, userId));
+                }
+            });
+        } else {
+            productIds.forEach(productId -> store.remove(productId, userId));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.product.reservation.sweep-interval:PT30S}")
+    public void sweepExpired() {
+        long now = System.currentTimeMillis();
+        int removedFromMemory = store.removeExpired(now);
+        int removedFromTable = reservationRepository.deleteExpired(toLocalDateTime(now));
+        if (removedFromMemory > 0 || removedFromTable > 0) {
+            log.info("Expired stock reservations removed: {} in memory, {} in table", removedFromMemory, removedFromTable);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadActiveReservations() {
+        List<StockReservation> active = reservationRepository.findByExpiresAtAfter(LocalDateTime.now());
+        active.forEach(reservation -> store.restore(
+                reservation.getProductId(),
+                reservation.getUserId(),
+                reservation.getQuantity(),
+                toEpochMillis(reservation.getExpiresAt())));
+        log.info("Loaded {} active stock reservations", active.size());
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,152 @@
+package com.modulith.ecommerce.product.domain;
+
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of the active stock holds, striped per product: every product has its own
+ * lock, so reservations of different products never contend with each other.
+ * Expired holds are ignored by every read, the sweeper only reclaims memory.
+ */
+@Component
+public class StockReservationStore {
+
+    private final Map<Long, ProductHolds> holdsByProduct = new ConcurrentHashMap<>();
+
+    /**
+     * Reserves the quantity for the user if the stock not held by other users allows it.
+     * An existing hold of the same user is replaced.
+     * @return Quantity available to the user before this reservation
+     * @throws IllegalArgumentException if the quantity is not positive, a negative hold would add stock
+     */
+    public int tryReserve(Long productId, Long userId, int quantity, int stock, long expiresAt, long now) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Reserved quantity must be positive: " + quantity);
+        }
+        while (true) {
+            ProductHolds holds = holdsByProduct.computeIfAbsent(productId, id -> new ProductHolds());
+            synchronized (holds) {
+                if (holds.retired) {
+                    continue;
+                }
+                int available = stock - holds.reservedExcluding(userId, now);
+                if (quantity <= available) {
+                    holds.byUser.put(userId, new Hold(quantity, expiresAt));
+                }
+                return available;
+            }
+        }
+    }
+
+    /**
+     * Restores a hold loaded from the database, without checking stock.
+     */
+    public void restore(Long productId, Long userId, int quantity, long expiresAt) {
+        while (true) {
+            ProductHolds holds = holdsByProduct.computeIfAbsent(productId, id -> new ProductHolds());
+            synchronized (holds) {
+                if (!holds.retired) {
+                    holds.byUser.put(userId, new Hold(quantity, expiresAt));
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Quantity of the product held by users other than the given one
+     */
+    public int reservedExcluding(Long productId, Long userId, long now) {
+        ProductHolds holds = holdsByProduct.get(productId);
+        if (holds == null) {
+            return 0;
+        }
+        synchronized (holds) {
+            return holds.reservedExcluding(userId, now);
+        }
+    }
+
+    /**
+     * @return The user's current hold on the product, null if none
+     */
+    Hold holdOf(Long productId, Long userId) {
+        ProductHolds holds = holdsByProduct.get(productId);
+        if (holds == null) {
+            return null;
+        }
+        synchronized (holds) {
+            return holds.byUser.get(userId);
+        }
+    }
+
+    /**
+     * Puts back the user's previous hold (none if null), unless the hold was replaced again meanwhile.
+     */
+    void revert(Long productId, Long userId, Hold taken, Hold previous) {
+        ProductHolds holds = holdsByProduct.get(productId);
+        if (holds == null) {
+            return;
+        }
+        synchronized (holds) {
+            if (taken.equals(holds.byUser.get(userId))) {
+                if (previous == null) {
+                    holds.byUser.remove(userId);
+                } else {
+                    holds.byUser.put(userId, previous);
+                }
+            }
+        }
+    }
+
+    public void remove(Long productId, Long userId) {
+        ProductHolds holds = holdsByProduct.get(productId);
+        if (holds != null) {
+            synchronized (holds) {
+                holds.byUser.remove(userId);
+            }
+        }
+    }
+
+    /**
+     * Drops expired holds and products left without holds.
+     * @return Number of holds removed
+     */
+    public int removeExpired(long now) {
+        int removed = 0;
+        for (Map.Entry<Long, ProductHolds> entry : holdsByProduct.entrySet()) {
+            ProductHolds holds = entry.getValue();
+            synchronized (holds) {
+                int before = holds.byUser.size();
+                holds.byUser.values().removeIf(hold -> hold.expiresAt() <= now);
+                removed += before - holds.byUser.size();
+                if (holds.byUser.isEmpty()) {
+                    // retired holders are never written again, writers racing with this removal retry
+                    holds.retired = true;
+                    holdsByProduct.remove(entry.getKey(), holds);
+                }
+            }
+        }
+        return removed;
+    }
+
+    private static final class ProductHolds {
+        private final Map<Long, Hold> byUser = new HashMap<>();
+
+        private boolean retired;
+
+        private int reservedExcluding(Long userId, long now) {
+            int reserved = 0;
+            for (Map.Entry<Long, Hold> entry : byUser.entrySet()) {
+                if (!entry.getKey().equals(userId) && entry.getValue().expiresAt() > now) {
+                    reserved += entry.getValue().quantity();
+                }
+            }
+            return reserved;
+        }
+    }
+
+    record Hold(int quantity, long expiresAt) {}
+}
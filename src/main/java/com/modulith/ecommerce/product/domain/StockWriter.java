@@ -0,0 +1,282 @@
+package com.modulith.ecommerce.product.domain;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Optional stage that applies the stock increments of cancellation events in micro-batches.
+ * Requests are collected for at most max-wait or max-batch requests, coalesced per product and written
+ * as one batched UPDATE in its own transaction, so a hot product is written once per batch instead of once
+ * per event. Products whose coalesced delta would go below zero are retried statement by statement, in
+ * request order, so every request still gets its own result.
+ * A request may carry the order whose stock it restores: the order_stock_restorations marker is written in
+ * the batch transaction, so the increments and the marker commit together and a redelivery is skipped.
+ * Sharded products never match the batched UPDATE: their deltas go to the buckets, request by request.
+ * Checkout decrements never go through the writer, they must commit or roll back with the checkout.
+ */
+@Component
+@Slf4j
+public class StockWriter {
+
+    private final ProductStockRepository stockRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+
+    private final int maxBatch;
+
+    private final long maxWaitNanos;
+
+    private final Duration timeout;
+
+    private final BlockingQueue<StockWrite> queue;
+
+    private final DistributionSummary batchSizes;
+
+    private ExecutorService worker;
+
+    private volatile boolean running;
+
+    public StockWriter(
+            ProductStockRepository stockRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.product.stock-writer.enabled:false}") boolean enabled,
+            @Value("${app.product.stock-writer.max-batch:256}") int maxBatch,
+            @Value("${app.product.stock-writer.max-wait:PT0.005S}") Duration maxWait,
+            @Value("${app.product.stock-writer.timeout:PT5S}") Duration timeout,
+            MeterRegistry meterRegistry) {
+        this.stockRepository = stockRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.maxBatch = maxBatch;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.timeout = timeout;
+        this.queue = new ArrayBlockingQueue<>(maxBatch * 16);
+        this.batchSizes = DistributionSummary.builder("product.stock.writer.batch.size")
+                .description("Stock write requests applied per batch")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Outcome of one request.
+     * @param alreadyApplied The order's stock was restored before, nothing was written
+     * @param notUpdated IDs of the products that were not updated (missing or not enough stock)
+     */
+    public record Result(boolean alreadyApplied, List<Long> notUpdated) {}
+
+    record StockWrite(Map<Long, Integer> deltas, Long restoredOrderId, CompletableFuture<Result> result) {}
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues the stock deltas of one caller and waits for its batch to commit.
+     * @param deltas Map of product IDs and quantities to add (negative to decrement)
+     * @param restoredOrderId Order whose stock is restored, recorded with the deltas (null for none)
+     * @throws IllegalStateException if the writer is stopped or does not answer within the timeout
+     */
+    public Result write(Map<Long, Integer> deltas, Long restoredOrderId) {
+        CompletableFuture<Result> result = submit(deltas, restoredOrderId);
+        try {
+            return result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            // the batch may still commit later, the restoration marker makes a redelivery harmless
+            throw new IllegalStateException("Stock writer did not answer within " + timeout, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the stock writer", e);
+        }
+    }
+
+    /**
+     * Queues the stock deltas of one caller, waiting at most the timeout for room in the queue.
+     * @return Completes after the batch commits, or exceptionally if the batch failed or was not queued
+     */
+    CompletableFuture<Result> submit(Map<Long, Integer> deltas, Long restoredOrderId) {
+        CompletableFuture<Result> result = new CompletableFuture<>();
+        if (!running) {
+            result.completeExceptionally(new IllegalStateException("Stock writer is not running"));
+            return result;
+        }
+        try {
+            if (!queue.offer(new StockWrite(deltas, restoredOrderId, result), timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                result.completeExceptionally(new IllegalStateException("Stock writer queue is full"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    @PostConstruct
+    void start() {
+        if (enabled) {
+            running = true;
+            worker = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("stock-writer-"));
+            worker.execute(this::run);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (worker != null) {
+            running = false;
+            worker.shutdown();
+            worker.awaitTermination(10, TimeUnit.SECONDS);
+            // requests queued while stopping
+            queue.forEach(write -> write.result().completeExceptionally(
+                    new IllegalStateException("Stock writer is not running")));
+        }
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            try {
+                StockWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                List<StockWrite> batch = new ArrayList<>();
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatch) {
+                    StockWrite next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // keep the only writer thread alive, the callers of the batch already got the failure
+                log.error("Stock writer iteration failed", e);
+            }
+        }
+    }
+
+    private void write(List<StockWrite> batch) {
+        batchSizes.record(batch.size());
+        try {
+            List<Result> results = transactionTemplate.execute(status -> apply(batch));
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(results.get(i));
+            }
+        } catch (RuntimeException e) {
+            log.error("Stock write batch of {} requests failed", batch.size(), e);
+            batch.forEach(write -> write.result().completeExceptionally(e));
+        }
+    }
+
+    List<Result> apply(List<StockWrite> batch) {
+        List<Result> results = new ArrayList<>(batch.size());
+        List<StockWrite> pending = new ArrayList<>(batch.size());
+        List<List<Long>> notUpdated = new ArrayList<>(batch.size());
+        for (StockWrite write : batch) {
+            if (write.restoredOrderId() != null && !stockRepository.markStockRestored(write.restoredOrderId())) {
+                results.add(new Result(true, List.of()));
+                notUpdated.add(null);
+            } else {
+                List<Long> failed = new ArrayList<>();
+                results.add(new Result(false, failed));
+                notUpdated.add(failed);
+                pending.add(write);
+            }
+        }
+        if (pending.isEmpty()) {
+            return results;
+        }
+
+        StockDeltas net = new StockDeltas(pending.size() * 4);
+        for (StockWrite write : pending) {
+            write.deltas().forEach(net::add);
+        }
+
+        long[] ids = net.sortedIds();
+        int[] deltas = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            deltas[i] = net.get(ids[i]);
+        }
+        int[] updateCounts = stockRepository.applyDeltas(ids, deltas);
+
+        List<Long> failed = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (updateCounts[i] == 0) {
+                failed.add(ids[i]);
+            }
+        }
+        if (failed.isEmpty()) {
+            return results;
+        }
+
+        // failed rows were left untouched: apply every request's own delta for them, in id order
+        // then request order, so a request only fails if the stock runs out before it
+        Map<Long, Integer> bucketCounts = stockRepository.findBucketCounts(failed);
+        long[] retryIds = new long[batch.size() * failed.size()];
+        int[] retryDeltas = new int[retryIds.length];
+        int[] retryOwners = new int[retryIds.length];
+        int statements = 0;
+        for (Long productId : failed) {
+            int buckets = bucketCounts.getOrDefault(productId, 0);
+            for (int owner = 0; owner < batch.size(); owner++) {
+                if (notUpdated.get(owner) == null) {
+                    continue;
+                }
+                Integer delta = batch.get(owner).deltas().get(productId);
+                if (delta != null && buckets > 0) {
+                    boolean applied = delta >= 0
+                            ? stockRepository.incrementBuckets(productId, delta, buckets)
+                            : stockRepository.decrementBuckets(productId, -delta, buckets);
+                    if (!applied) {
+                        notUpdated.get(owner).add(productId);
+                    }
+                } else if (delta != null) {
+                    retryIds[statements] = productId;
+                    retryDeltas[statements] = delta;
+                    retryOwners[statements++] = owner;
+                }
+            }
+        }
+
+        int[] retryCounts = stockRepository.applyDeltas(
+                Arrays.copyOf(retryIds, statements), Arrays.copyOf(retryDeltas, statements));
+        for (int i = 0; i < statements; i++) {
+            if (retryCounts[i] == 0) {
+                notUpdated.get(retryOwners[i]).add(retryIds[i]);
+            }
+        }
+        return results;
+    }
+}
@@ -4,12 +4,14 @@ import com.modulith.ecommerce.common.Role;
 import com.modulith.ecommerce.user.domain.User;
 
 public record UserLoginDTO(
+    Long id,
     String email,
     String password,
     Role role
 ) {
     public static UserLoginDTO fromEntity(User user) {
         return new UserLoginDTO(
+                user.getId(),
                 user.getEmail(),
                 user.getPassword(),
                 user.getRole()
@@ -1,6 +1,7 @@
 package com.modulith.ecommerce.user.domain;
 
 import com.modulith.ecommerce.auth.AuthModuleAPI;
+import com.modulith.ecommerce.common.CursorPage;
 import com.modulith.ecommerce.user.UserCreateDTO;
 import com.modulith.ecommerce.user.UserDTO;
 import io.swagger.v3.oas.annotations.Operation;
@@ -8,7 +9,9 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.data.web.SortDefault;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -35,6 +38,15 @@ public class UserController {
         return service.findAll(pageable);
     }
 
+    @GetMapping("/scroll")
+    @Operation(summary = "Get all users with cursor pagination (no total count)")
+    public CursorPage<UserDTO> scrollUsers(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size,
+            @ParameterObject @SortDefault(sort = "id") Sort sort) {
+        return service.scroll(after, sort, size);
+    }
+
     @PostMapping()
     public UserDTO createUser(@RequestBody UserCreateDTO user) {
         return service.saveUser(user);
@@ -1,13 +1,19 @@
 package com.modulith.ecommerce.user.domain;
 
+import com.modulith.ecommerce.common.CursorPage;
 import com.modulith.ecommerce.common.Role;
+import com.modulith.ecommerce.common.ScrollCursor;
+import com.modulith.ecommerce.event.UserDeletedEvent;
 import com.modulith.ecommerce.exception.DuplicateResourceException;
 import com.modulith.ecommerce.exception.ResourceNotFoundException;
 import com.modulith.ecommerce.user.*;
 import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -18,6 +24,7 @@ import java.util.Optional;
 public class UserService implements UserModuleAPI {
     private final UserRepository repository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     public UserDTO findById(Long id) {
         return repository.findById(id).map(UserDTO::fromEntity).orElseThrow(() -> new ResourceNotFoundException("User", id));
@@ -29,6 +36,12 @@ public class UserService implements UserModuleAPI {
                 .getContent();
     }
 
+    public CursorPage<UserDTO> scroll(String after, Sort sort, int size) {
+        return CursorPage.of(
+                repository.findAllBy(ScrollCursor.decode(after, User.class, sort), sort, ScrollCursor.limit(size)),
+                UserDTO::fromEntity);
+    }
+
     public UserDTO saveUser(UserCreateDTO user) {
         if (repository.findByEmail(user.email()).isPresent()) {
             throw new DuplicateResourceException("User already exists");
@@ -61,9 +74,12 @@ public class UserService implements UserModuleAPI {
         return UserDTO.fromEntity(repository.save(updatedUser));
     }
 
+    // the event is published in the transaction, its listeners only run once the delete commits
+    @Transactional
     public void deleteUser(Long id) {
-        findById(id);
+        UserDTO user = findById(id);
         repository.deleteById(id);
+        eventPublisher.publishEvent(new UserDeletedEvent(id, user.email()));
     }
 
     @Override
@@ -78,7 +94,7 @@ public class UserService implements UserModuleAPI {
 
     @Override
     public Optional<Long> findUserIdByEmail(String email) {
-        return repository.findByEmail(email).map(User::getId);
+        return repository.findIdByEmail(email);
     }
 
     @Override
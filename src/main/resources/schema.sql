@@ -0,0 +1,54 @@
+-- Runs after Hibernate schema update (spring.jpa.defer-datasource-initialization=true).
+-- Only objects Hibernate cannot express through mapping annotations belong here; keep every statement idempotent.
+
+-- Full-text search over products, expression must match ProductSearchRepository.SEARCH_VECTOR
+create index if not exists idx_products_search
+    on products using gin (to_tsvector('simple', coalesce(name, '') || ' ' || coalesce(description, '')));
+
+-- One-off data migrations: a row is written once the migration ran, later startups skip it
+create table if not exists data_migrations (
+    name       varchar(100) primary key,
+    applied_at timestamp    not null default now()
+);
+
+-- Backfill of the checkout snapshot for orders created before it was stored.
+-- The uncorrelated guard is evaluated once, so after the first run the tables are not scanned again.
+update order_items oi
+set product_name = p.name, unit_price = p.price_amount, line_total = p.price_amount * oi.quantity
+from products p
+where oi.product_id = p.id and oi.unit_price is null
+  and not exists (select 1 from data_migrations where name = 'order-checkout-snapshot');
+
+update orders o
+set total_quantity = t.quantity, total_price = t.price
+from (select order_id, sum(quantity) as quantity, sum(line_total) as price
+      from order_items group by order_id) t
+where o.id = t.order_id and o.total_price is null
+  and not exists (select 1 from data_migrations where name = 'order-checkout-snapshot');
+
+insert into data_migrations (name) values ('order-checkout-snapshot') on conflict do nothing;
+
+-- Last activity of a cart, expression must match AbandonedCartReaper
+create index if not exists idx_carts_last_activity
+    on carts ((coalesce(updated_at, created_at)));
+
+-- Archive of completed event publications, filled by EventPublicationHousekeeping when archiving is enabled
+create table if not exists event_publication_archive (
+    id uuid primary key,
+    listener_id varchar(255),
+    event_type varchar(255),
+    serialized_event text,
+    publication_date timestamp(6) with time zone,
+    completion_date timestamp(6) with time zone
+);
+
+-- Retry state of incomplete event publications, maintained by EventPublicationRetryWorker
+create table if not exists event_publication_retry (
+    publication_id uuid primary key,
+    attempts integer not null,
+    next_attempt_at timestamp(6) with time zone not null,
+    dead_lettered_at timestamp(6) with time zone
+);
+
+create index if not exists idx_event_publication_retry_due
+    on event_publication_retry (next_attempt_at) where dead_lettered_at is null;
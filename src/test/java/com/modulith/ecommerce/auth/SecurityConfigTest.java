@@ -0,0 +1,97 @@
+package com.modulith.ecommerce.auth;
+
+import com.modulith.ecommerce.product.domain.ProductController;
+import com.modulith.ecommerce.product.domain.ProductExportService;
+import com.modulith.ecommerce.product.domain.ProductImportService;
+import com.modulith.ecommerce.product.domain.ProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(ProductController.class)
+@Import({SecurityConfig.class, SecurityConfigTest.Metrics.class})
+class SecurityConfigTest {
+
+    private static final String USER_TOKEN = "user-token";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private JwtService jwtService;
+
+    @MockitoBean
+    private ProductService productService;
+
+    @MockitoBean
+    private ProductImportService importService;
+
+    @MockitoBean
+    private ProductExportService exportService;
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Test
+    void rejectsAnonymousProductImport() throws Exception {
+        mockMvc.perform(post("/products/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"name\":\"x\"}"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void rejectsProductImportByUser() throws Exception {
+        authenticateAs("USER");
+
+        mockMvc.perform(post("/products/import")
+                        .header("Authorization", "Bearer " + USER_TOKEN)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"name\":\"x\"}"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void rejectsAnonymousBatchStockAdjustment() throws Exception {
+        mockMvc.perform(patch("/products/stock")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"id\":1,\"stock\":0}]"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void rejectsBatchStockAdjustmentByUser() throws Exception {
+        authenticateAs("USER");
+
+        mockMvc.perform(patch("/products/stock")
+                        .header("Authorization", "Bearer " + USER_TOKEN)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"id\":1,\"stock\":0}]"))
+                .andExpect(status().isForbidden());
+    }
+
+    private void authenticateAs(String role) {
+        when(jwtService.verify(USER_TOKEN))
+                .thenReturn(new JwtPrincipal(1L, "user@example.com", role, Instant.now().plusSeconds(60)));
+    }
+}
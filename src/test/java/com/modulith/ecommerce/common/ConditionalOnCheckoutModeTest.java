@@ -0,0 +1,46 @@
+package com.modulith.ecommerce.common;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConditionalOnCheckoutModeTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withUserConfiguration(SyncOnly.class, AsyncOnly.class);
+
+    @Test
+    void defaultsToSync() {
+        runner.run(context -> assertThat(context)
+                .hasSingleBean(SyncOnly.class)
+                .doesNotHaveBean(AsyncOnly.class));
+    }
+
+    @Test
+    void matchesTheModeWhateverItsCase() {
+        for (String value : new String[]{"async", "ASYNC", "Async"}) {
+            runner.withPropertyValues("app.checkout.mode=" + value)
+                    .run(context -> assertThat(context)
+                            .hasSingleBean(AsyncOnly.class)
+                            .doesNotHaveBean(SyncOnly.class));
+        }
+    }
+
+    @Test
+    void failsTheStartupOnAnUnknownMode() {
+        runner.withPropertyValues("app.checkout.mode=asycn")
+                .run(context -> assertThat(context).hasFailed());
+    }
+
+    @Configuration
+    @ConditionalOnCheckoutMode(CheckoutMode.SYNC)
+    static class SyncOnly {
+    }
+
+    @Configuration
+    @ConditionalOnCheckoutMode(CheckoutMode.ASYNC)
+    static class AsyncOnly {
+    }
+}
@@ -0,0 +1,59 @@
+package com.modulith.ecommerce.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyTest {
+
+    @Test
+    void convertsTwoDecimalAmountsExactly() {
+        assertThat(Money.of(new BigDecimal("19.99")).minorUnits()).isEqualTo(1999);
+        assertThat(Money.of(new BigDecimal("-0.01")).minorUnits()).isEqualTo(-1);
+        assertThat(Money.of(new BigDecimal("0.1")).minorUnits()).isEqualTo(10);
+        assertThat(Money.of(new BigDecimal("7")).minorUnits()).isEqualTo(700);
+        assertThat(Money.of(new BigDecimal("2.500")).minorUnits()).isEqualTo(250);
+        assertThat(Money.of(new BigDecimal("1E+2")).minorUnits()).isEqualTo(10_000);
+    }
+
+    @Test
+    void rejectsAmountsWithMoreThanTwoDecimals() {
+        assertThatThrownBy(() -> Money.of(new BigDecimal("0.001"))).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.of(new BigDecimal("19.995"))).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void rejectsAmountsOutsideALong() {
+        BigDecimal max = BigDecimal.valueOf(Long.MAX_VALUE, Money.SCALE);
+
+        assertThat(Money.of(max).minorUnits()).isEqualTo(Long.MAX_VALUE);
+        assertThatThrownBy(() -> Money.of(max.add(new BigDecimal("0.01")))).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void multipliesAndAddsInMinorUnits() {
+        Money price = Money.of(new BigDecimal("0.10"));
+
+        assertThat(price.times(3).plus(Money.of(new BigDecimal("0.20"))).toBigDecimal())
+                .isEqualTo(new BigDecimal("0.50"));
+        assertThat(price.times(0)).isEqualTo(Money.ZERO);
+    }
+
+    @Test
+    void failsInsteadOfOverflowing() {
+        Money max = new Money(Long.MAX_VALUE);
+
+        assertThatThrownBy(() -> max.times(2)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> max.plus(new Money(1))).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> new Money(Long.MIN_VALUE).times(-1)).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void convertsBackWithTwoDecimals() {
+        assertThat(new Money(5).toBigDecimal()).isEqualTo(new BigDecimal("0.05")).hasScaleOf(Money.SCALE);
+        assertThat(Money.ZERO.toBigDecimal()).isEqualTo(new BigDecimal("0.00"));
+    }
+}
@@ -0,0 +1,52 @@
+package com.modulith.ecommerce.product.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockDeltasTest {
+
+    @Test
+    void coalescesDeltasOfTheSameProduct() {
+        StockDeltas deltas = new StockDeltas(4);
+
+        deltas.add(7L, 3);
+        deltas.add(7L, -5);
+        deltas.add(9L, 2);
+
+        assertThat(deltas.size()).isEqualTo(2);
+        assertThat(deltas.get(7L)).isEqualTo(-2);
+        assertThat(deltas.get(9L)).isEqualTo(2);
+        assertThat(deltas.get(8L)).isZero();
+    }
+
+    @Test
+    void keepsEveryDeltaWhenGrowingPastTheLoadFactor() {
+        StockDeltas deltas = new StockDeltas(1);
+
+        for (long productId = 1; productId <= 1_000; productId++) {
+            deltas.add(productId * 1_024, (int) productId);
+        }
+        for (long productId = 1; productId <= 1_000; productId++) {
+            deltas.add(productId * 1_024, 1);
+        }
+
+        assertThat(deltas.size()).isEqualTo(1_000);
+        for (long productId = 1; productId <= 1_000; productId++) {
+            assertThat(deltas.get(productId * 1_024)).isEqualTo((int) productId + 1);
+        }
+    }
+
+    @Test
+    void returnsIdsInAscendingOrder() {
+        StockDeltas deltas = new StockDeltas(8);
+
+        deltas.add(42L, 1);
+        deltas.add(3L, 1);
+        deltas.add(17L, 1);
+        deltas.add(3L, 1);
+
+        assertThat(deltas.sortedIds()).containsExactly(3L, 17L, 42L);
+        assertThat(new StockDeltas(8).sortedIds()).isEmpty();
+    }
+}
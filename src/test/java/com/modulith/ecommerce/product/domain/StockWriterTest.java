@@ -0,0 +1,160 @@
+package com.modulith.ecommerce.product.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class StockWriterTest {
+
+    private final InMemoryStockRepository stockRepository = new InMemoryStockRepository();
+
+    private final StockWriter writer = new StockWriter(stockRepository, mock(PlatformTransactionManager.class),
+            true, 256, Duration.ofMillis(5), Duration.ofSeconds(5), new SimpleMeterRegistry());
+
+    @Test
+    void writesTheCoalescedDeltaOfAProductOnce() {
+        stockRepository.stock.put(1L, 10);
+        stockRepository.stock.put(2L, 0);
+
+        List<StockWriter.Result> results = writer.apply(List.of(
+                write(Map.of(1L, 2, 2L, 1)),
+                write(Map.of(1L, 3))));
+
+        assertThat(results).extracting(StockWriter.Result::notUpdated).containsOnly(List.of());
+        assertThat(stockRepository.stock).containsEntry(1L, 15).containsEntry(2L, 1);
+        assertThat(stockRepository.statements).containsExactly(List.of(1L, 2L));
+    }
+
+    @Test
+    void failsARequestOnlyWhenTheStockRunsOutBeforeIt() {
+        stockRepository.stock.put(1L, 5);
+
+        List<StockWriter.Result> results = writer.apply(List.of(
+                write(Map.of(1L, -3)),
+                write(Map.of(1L, -3)),
+                write(Map.of(1L, -2))));
+
+        assertThat(results).extracting(StockWriter.Result::notUpdated)
+                .containsExactly(List.of(), List.of(1L), List.of());
+        assertThat(stockRepository.stock).containsEntry(1L, 0);
+    }
+
+    @Test
+    void reportsMissingProductsToEveryRequestThatReferencesThem() {
+        stockRepository.stock.put(1L, 0);
+
+        List<StockWriter.Result> results = writer.apply(List.of(
+                write(Map.of(1L, 1, 99L, 1)),
+                write(Map.of(99L, 2))));
+
+        assertThat(results).extracting(StockWriter.Result::notUpdated)
+                .containsExactly(List.of(99L), List.of(99L));
+        assertThat(stockRepository.stock).containsEntry(1L, 1);
+    }
+
+    @Test
+    void skipsAnOrderWhoseStockWasAlreadyRestored() {
+        stockRepository.stock.put(1L, 0);
+        stockRepository.restoredOrders.add(100L);
+
+        List<StockWriter.Result> results = writer.apply(List.of(
+                new StockWriter.StockWrite(Map.of(1L, 4), 100L, new CompletableFuture<>()),
+                new StockWriter.StockWrite(Map.of(1L, 1), 101L, new CompletableFuture<>())));
+
+        assertThat(results).extracting(StockWriter.Result::alreadyApplied).containsExactly(true, false);
+        assertThat(stockRepository.stock).containsEntry(1L, 1);
+        assertThat(stockRepository.restoredOrders).contains(101L);
+    }
+
+    @Test
+    void addsTheDeltasOfShardedProductsToTheBuckets() {
+        stockRepository.stock.put(1L, 0);
+        stockRepository.bucketStock.put(1L, 0);
+
+        List<StockWriter.Result> results = writer.apply(List.of(
+                write(Map.of(1L, 2)),
+                write(Map.of(1L, 3))));
+
+        assertThat(results).extracting(StockWriter.Result::notUpdated).containsOnly(List.of());
+        assertThat(stockRepository.stock).containsEntry(1L, 0);
+        assertThat(stockRepository.bucketStock).containsEntry(1L, 5);
+    }
+
+    private static StockWriter.StockWrite write(Map<Long, Integer> deltas) {
+        return new StockWriter.StockWrite(deltas, null, new CompletableFuture<>());
+    }
+
+    // row and bucket stock kept in maps, with the conditions of the SQL statements
+    private static class InMemoryStockRepository extends ProductStockRepository {
+
+        private final Map<Long, Integer> stock = new HashMap<>();
+
+        private final Map<Long, Integer> bucketStock = new HashMap<>();
+
+        private final Set<Long> restoredOrders = new HashSet<>();
+
+        private final List<List<Long>> statements = new ArrayList<>();
+
+        InMemoryStockRepository() {
+            super(null);
+        }
+
+        @Override
+        public boolean markStockRestored(Long orderId) {
+            return restoredOrders.add(orderId);
+        }
+
+        @Override
+        public int[] applyDeltas(long[] productIds, int[] deltas) {
+            List<Long> ids = new ArrayList<>();
+            int[] updateCounts = new int[productIds.length];
+            for (int i = 0; i < productIds.length; i++) {
+                ids.add(productIds[i]);
+                Integer current = stock.get(productIds[i]);
+                if (current != null && !bucketStock.containsKey(productIds[i]) && current + deltas[i] >= 0) {
+                    stock.put(productIds[i], current + deltas[i]);
+                    updateCounts[i] = 1;
+                }
+            }
+            statements.add(ids);
+            return updateCounts;
+        }
+
+        @Override
+        public Map<Long, Integer> findBucketCounts(Collection<Long> productIds) {
+            Map<Long, Integer> counts = new HashMap<>();
+            productIds.stream()
+                    .filter(stock::containsKey)
+                    .forEach(productId -> counts.put(productId, bucketStock.containsKey(productId) ? 4 : 0));
+            return counts;
+        }
+
+        @Override
+        public boolean incrementBuckets(Long productId, int quantity, int buckets) {
+            bucketStock.merge(productId, quantity, Integer::sum);
+            return true;
+        }
+
+        @Override
+        public boolean decrementBuckets(Long productId, int quantity, int buckets) {
+            if (bucketStock.get(productId) + stock.get(productId) < quantity) {
+                return false;
+            }
+            bucketStock.merge(productId, -quantity, Integer::sum);
+            return true;
+        }
+    }
+}